@@ -0,0 +1,105 @@
+/*
+ * Corpus.java
+ *
+ */
+
+package no.hist.aitel.chess.bench;
+
+import no.hist.aitel.chess.board.Board;
+
+/**
+ * Fixed positions used by the benchmarks. Each position is reached by replaying a game from
+ * the initial board with Board.movePiece, so the boards carry the same state as in a real game.
+ * @author martin
+ */
+
+public class Corpus {
+
+    // Don't allow instances of this class
+    private Corpus() {
+    }
+
+    /**
+     * Ruy Lopez, both sides castled kingside
+     */
+    public static final String[] RUY_LOPEZ = {
+        "e2e4", "e7e5", "g1f3", "b8c6", "f1b5", "a7a6", "b5a4", "g8f6", "e1g1", "f8e7",
+        "f1e1", "b7b5", "a4b3", "d7d6", "c2c3", "e8g8", "h2h3"
+    };
+
+    /**
+     * Queen's Gambit Declined, black has just taken on c4
+     */
+    public static final String[] QUEENS_GAMBIT = {
+        "d2d4", "d7d5", "c2c4", "e7e6", "b1c3", "g8f6", "c1g5", "f8e7", "e2e3", "e8g8",
+        "g1f3", "b8d7", "a1c1", "c7c6", "f1d3", "d5c4", "d3c4", "f6d5"
+    };
+
+    /**
+     * Sicilian Najdorf, white castled queenside
+     */
+    public static final String[] NAJDORF = {
+        "e2e4", "c7c5", "g1f3", "d7d6", "d2d4", "c5d4", "f3d4", "g8f6", "b1c3", "a7a6",
+        "c1e3", "e7e5", "d4b3", "c8e6", "f2f3", "f8e7", "d1d2", "e8g8", "e1c1"
+    };
+
+    /**
+     * King, knight, rook and pawn against king and two pawns
+     */
+    public static final String[] ROOK_ENDGAME = {
+        "b2b3", "g7g6", "b1a3", "b8c6", "f2f4", "b7b5", "a3b5", "c6e5", "b5c7", "d8c7",
+        "f4e5", "c8b7", "c1b2", "b7g2", "f1g2", "c7c2", "d1c2", "a8c8", "g2a8", "c8c2",
+        "d2d4", "g8f6", "a1c1", "c2e2", "e1f1", "f8h6", "e5f6", "e2e5", "d4e5", "h6c1",
+        "b2c1", "e7f6", "e5f6", "e8f8", "c1d2", "h7h5", "f1f2", "f8g8", "a8f3", "h8h6",
+        "f2e2", "d7d5", "f3g2", "h6h8", "g2d5", "h8h6", "d2g5", "g8h8", "g5h6", "a7a5",
+        "d5f7", "h8h7", "h6g5", "h7h8", "e2f3", "h8h7", "f7g6", "h7g6", "g5h6", "g6h6",
+        "f3e4", "h6g6", "e4d3", "g6f6", "d3e4", "f6f7", "b3b4", "a5b4", "a2a3", "b4a3"
+    };
+
+    /**
+     * King and two pawns against king, knight and two pawns
+     */
+    public static final String[] PAWN_ENDGAME = {
+        "d2d4", "g7g6", "g1f3", "h7h5", "e2e3", "c7c5", "d4c5", "e7e6", "f1a6", "d7d5",
+        "a6b5", "b8c6", "a2a4", "f8c5", "f3e5", "d8g5", "b5c6", "b7c6", "b2b3", "g5g2",
+        "d1d5", "g2f2", "e1f2", "e6d5", "c1b2", "h8h6", "e5c6", "c5e3", "f2e3", "a7a5",
+        "c6a5", "a8a5", "b2e5", "a5a4", "h1f1", "a4a1", "b3b4", "a1b1", "f1b1", "f7f5",
+        "e5d4", "h6h8", "d4h8", "e8d8", "h8g7", "c8a6", "g7e5", "a6c4", "b4b5", "c4b5",
+        "b1b5", "g8e7", "e3d4", "e7c6", "d4d3", "c6e5", "d3e2", "e5c6", "c2c3", "d8c8",
+        "b5d5", "c6d8", "d5f5", "g6f5"
+    };
+
+    /**
+     * Get a game by name
+     * @param name
+     * @return The moves of the game
+     */
+    public static String[] getGame(String name) {
+        if (name.equals("ruyLopez")) {
+            return RUY_LOPEZ;
+        } else if (name.equals("queensGambit")) {
+            return QUEENS_GAMBIT;
+        } else if (name.equals("najdorf")) {
+            return NAJDORF;
+        } else if (name.equals("rookEndgame")) {
+            return ROOK_ENDGAME;
+        } else if (name.equals("pawnEndgame")) {
+            return PAWN_ENDGAME;
+        }
+        throw new IllegalArgumentException("Unknown position: " + name);
+    }
+
+    /**
+     * Create a board by replaying a game
+     * @param name
+     * @return The board
+     */
+    public static Board getBoard(String name) {
+        Board board = new Board();
+        for (String move : getGame(name)) {
+            board.movePiece(move.substring(0, 2).toUpperCase(), move.substring(2, 4).toUpperCase());
+        }
+        return board;
+    }
+
+}
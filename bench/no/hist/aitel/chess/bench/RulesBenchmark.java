@@ -0,0 +1,142 @@
+/*
+ * RulesBenchmark.java
+ *
+ */
+
+package no.hist.aitel.chess.bench;
+
+import java.util.concurrent.TimeUnit;
+import no.hist.aitel.chess.board.BitBoard;
+import no.hist.aitel.chess.board.Board;
+import no.hist.aitel.chess.board.Move;
+import no.hist.aitel.chess.board.MoveGenerator;
+import no.hist.aitel.chess.board.MoveList;
+import no.hist.aitel.chess.position.Position;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks for the rules engine on the positions in Corpus.
+ * Run with "ant bench", see build.xml.
+ * @author martin
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RulesBenchmark {
+
+    /**
+     * A board which is only read by the benchmarks
+     */
+    @State(Scope.Thread)
+    public static class PositionState {
+
+        @Param({"ruyLopez", "queensGambit", "najdorf", "rookEndgame", "pawnEndgame"})
+        public String position;
+
+        Board board;
+        BitBoard bits;
+        Position p;
+        MoveList list = new MoveList();
+        int from, to;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            board = Corpus.getBoard(position);
+            bits = board.getBitBoard();
+            p = new Position(board);
+            int move = getRegularMove(board, list);
+            from = Move.getFrom(move);
+            to = Move.getTo(move);
+        }
+    }
+
+    /**
+     * A fresh board for every call, as moving a piece changes the board
+     */
+    @State(Scope.Thread)
+    public static class MoveState {
+
+        @Param({"ruyLopez", "queensGambit", "najdorf", "rookEndgame", "pawnEndgame"})
+        public String position;
+
+        Board board;
+        int from, to;
+
+        @Setup(Level.Trial)
+        public void setUpMove() {
+            int move = getRegularMove(Corpus.getBoard(position), new MoveList());
+            from = Move.getFrom(move);
+            to = Move.getTo(move);
+        }
+
+        @Setup(Level.Invocation)
+        public void setUpBoard() {
+            board = Corpus.getBoard(position);
+        }
+    }
+
+    /**
+     * Get the first legal move which isn't castling or en passant
+     * @param board
+     * @param list
+     * @return The move
+     */
+    private static int getRegularMove(Board board, MoveList list) {
+        MoveGenerator.generateLegalMoves(board, list);
+        for (int i = 0; i < list.size(); i++) {
+            int flag = Move.getFlag(list.get(i));
+            if (flag == Move.NORMAL || flag == Move.DOUBLE_PAWN) {
+                return list.get(i);
+            }
+        }
+        throw new IllegalStateException("No regular move in position");
+    }
+
+    @Benchmark
+    public Board movePiece(MoveState s) {
+        s.board.movePiece(s.from, s.to);
+        return s.board;
+    }
+
+    @Benchmark
+    public Position verifyPositions(PositionState s) {
+        s.p.setPositions(s.from, s.to);
+        s.p.verifyPositions(false);
+        return s.p;
+    }
+
+    @Benchmark
+    public int checkPositions(PositionState s) {
+        return s.p.check(s.from, s.to);
+    }
+
+    @Benchmark
+    public boolean inCheck(PositionState s) {
+        return s.bits.isCheck();
+    }
+
+    @Benchmark
+    public boolean checkMate(PositionState s) {
+        return MoveGenerator.isCheckMate(s.bits);
+    }
+
+    @Benchmark
+    public String boardToString(PositionState s) {
+        return s.board.toString();
+    }
+
+}
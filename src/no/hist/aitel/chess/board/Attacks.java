@@ -0,0 +1,263 @@
+/*
+ * Attacks.java
+ *
+ */
+
+package no.hist.aitel.chess.board;
+
+import static no.hist.aitel.chess.piece.PieceConstants.*;
+
+/**
+ * Precomputed tables for the geometry of the board: the positions each piece attacks from each
+ * position, rays in the eight directions, the positions between two positions and the rank and
+ * file of each position. The tables are built once, so looking up a move never allocates or
+ * loops over the board.
+ * @author martin
+ */
+
+public class Attacks {
+
+    /**
+     * Directions, numbered so the ones going up the board (positive steps) come first and the
+     * opposite of a direction is direction ^ 4
+     */
+    public static final int NORTH = 0;
+    public static final int NORTH_EAST = 1;
+    public static final int EAST = 2;
+    public static final int NORTH_WEST = 3;
+    public static final int SOUTH = 4;
+    public static final int SOUTH_WEST = 5;
+    public static final int WEST = 6;
+    public static final int SOUTH_EAST = 7;
+
+    /**
+     * Masks for the A and H files
+     */
+    public static final long FILE_A = 0x0101010101010101L;
+    public static final long FILE_H = FILE_A << 7;
+
+    /**
+     * Rank and file steps for each direction
+     */
+    private static final int[] RANK_STEPS = {1, 1, 0, 1, -1, -1, 0, -1};
+    private static final int[] FILE_STEPS = {0, 1, 1, -1, 0, -1, -1, 1};
+
+    private static final int[] RANKS = new int[64];
+    private static final int[] FILES = new int[64];
+    private static final long[][] PAWN_ATTACKS = new long[2][64];
+    private static final long[] KNIGHT_ATTACKS = new long[64];
+    private static final long[] KING_ATTACKS = new long[64];
+
+    /**
+     * Positions on the empty board in each direction from each position
+     */
+    private static final long[][] RAYS = new long[8][64];
+
+    /**
+     * Positions strictly between two positions on a line, or 0
+     */
+    private static final long[][] BETWEEN = new long[64][64];
+
+    /**
+     * Direction from one position to another, or UNDEFINED if they are not on a line
+     */
+    private static final byte[][] DIRECTIONS = new byte[64][64];
+
+    static {
+        for (int position = 0; position < 64; position++) {
+            RANKS[position] = position >>> 3;
+            FILES[position] = position & 7;
+        }
+        for (int position = 0; position < 64; position++) {
+            int rank = RANKS[position], file = FILES[position];
+            PAWN_ATTACKS[WHITE][position] = getMask(rank + 1, file - 1)
+                    | getMask(rank + 1, file + 1);
+            PAWN_ATTACKS[BLACK][position] = getMask(rank - 1, file - 1)
+                    | getMask(rank - 1, file + 1);
+            KNIGHT_ATTACKS[position] = getMask(rank + 2, file + 1) | getMask(rank + 2, file - 1)
+                    | getMask(rank - 2, file + 1) | getMask(rank - 2, file - 1)
+                    | getMask(rank + 1, file + 2) | getMask(rank + 1, file - 2)
+                    | getMask(rank - 1, file + 2) | getMask(rank - 1, file - 2);
+            for (int direction = 0; direction < 8; direction++) {
+                KING_ATTACKS[position] |= getMask(rank + RANK_STEPS[direction],
+                        file + FILE_STEPS[direction]);
+            }
+
+            for (int to = 0; to < 64; to++) {
+                DIRECTIONS[position][to] = UNDEFINED;
+            }
+            for (int direction = 0; direction < 8; direction++) {
+                long ray = 0;
+                int r = rank + RANK_STEPS[direction], f = file + FILE_STEPS[direction];
+                while (r >= 0 && r < 8 && f >= 0 && f < 8) {
+                    int to = r * 8 + f;
+                    BETWEEN[position][to] = ray;
+                    DIRECTIONS[position][to] = (byte) direction;
+                    ray |= 1L << to;
+                    r += RANK_STEPS[direction];
+                    f += FILE_STEPS[direction];
+                }
+                RAYS[direction][position] = ray;
+            }
+        }
+    }
+
+    // Don't allow instances of this class
+    private Attacks() {
+    }
+
+    /**
+     * Get the mask of a rank and file
+     * @param rank
+     * @param file
+     * @return The mask, or 0 if the rank or file is outside the board
+     */
+    private static long getMask(int rank, int file) {
+        if (rank < 0 || rank > 7 || file < 0 || file > 7) {
+            return 0;
+        }
+        return 1L << (rank * 8 + file);
+    }
+
+    /**
+     * Get the rank of a position
+     * @param position
+     * @return The rank, 0 for the first rank and 7 for the last
+     */
+    public static int getRank(int position) {
+        return RANKS[position];
+    }
+
+    /**
+     * Get the file of a position
+     * @param position
+     * @return The file, 0 for the A file and 7 for the H file
+     */
+    public static int getFile(int position) {
+        return FILES[position];
+    }
+
+    /**
+     * Get the direction from one position to another
+     * @param from
+     * @param to
+     * @return The direction, or UNDEFINED if the positions aren't on the same rank, file or
+     * diagonal
+     */
+    public static int getDirection(int from, int to) {
+        return DIRECTIONS[from][to];
+    }
+
+    /**
+     * Check if a direction is diagonal
+     * @param direction
+     * @return True if diagonal and false otherwise
+     */
+    public static boolean isDiagonal(int direction) {
+        return (direction & 1) != 0;
+    }
+
+    /**
+     * Get the positions between two positions on the same rank, file or diagonal
+     * @param from
+     * @param to
+     * @return The positions between, not including from and to, or 0 if not on a line
+     */
+    public static long getBetween(int from, int to) {
+        return BETWEEN[from][to];
+    }
+
+    /**
+     * Get the positions in a direction from a position on an empty board
+     * @param direction
+     * @param position
+     * @return The positions on the ray
+     */
+    public static long getRay(int direction, int position) {
+        return RAYS[direction][position];
+    }
+
+    /**
+     * Get the positions a pawn attacks
+     * @param color
+     * @param position
+     * @return The attacked positions
+     */
+    public static long getPawnAttacks(int color, int position) {
+        return PAWN_ATTACKS[color][position];
+    }
+
+    /**
+     * Get the positions a knight attacks
+     * @param position
+     * @return The attacked positions
+     */
+    public static long getKnightAttacks(int position) {
+        return KNIGHT_ATTACKS[position];
+    }
+
+    /**
+     * Get the positions a king attacks
+     * @param position
+     * @return The attacked positions
+     */
+    public static long getKingAttacks(int position) {
+        return KING_ATTACKS[position];
+    }
+
+    /**
+     * Get the positions a bishop attacks
+     * @param position
+     * @param occupied
+     * @return The attacked positions, including the first blocking piece in each direction
+     */
+    public static long getBishopAttacks(int position, long occupied) {
+        return getRayAttacks(NORTH_EAST, position, occupied)
+                | getRayAttacks(NORTH_WEST, position, occupied)
+                | getRayAttacks(SOUTH_WEST, position, occupied)
+                | getRayAttacks(SOUTH_EAST, position, occupied);
+    }
+
+    /**
+     * Get the positions a rook attacks
+     * @param position
+     * @param occupied
+     * @return The attacked positions, including the first blocking piece in each direction
+     */
+    public static long getRookAttacks(int position, long occupied) {
+        return getRayAttacks(NORTH, position, occupied)
+                | getRayAttacks(EAST, position, occupied)
+                | getRayAttacks(SOUTH, position, occupied)
+                | getRayAttacks(WEST, position, occupied);
+    }
+
+    /**
+     * Get the positions a queen attacks
+     * @param position
+     * @param occupied
+     * @return The attacked positions, including the first blocking piece in each direction
+     */
+    public static long getQueenAttacks(int position, long occupied) {
+        return getBishopAttacks(position, occupied) | getRookAttacks(position, occupied);
+    }
+
+    /**
+     * Get the positions attacked in one direction. The ray stops at the nearest blocking
+     * piece, which is the lowest bit going up the board and the highest going down.
+     * @param direction
+     * @param position
+     * @param occupied
+     * @return The attacked positions, including the first blocking piece
+     */
+    public static long getRayAttacks(int direction, int position, long occupied) {
+        long ray = RAYS[direction][position];
+        long blockers = ray & occupied;
+        if (blockers != 0) {
+            int blocker = direction < SOUTH ? Long.numberOfTrailingZeros(blockers)
+                    : 63 - Long.numberOfLeadingZeros(blockers);
+            ray ^= RAYS[direction][blocker];
+        }
+        return ray;
+    }
+
+}
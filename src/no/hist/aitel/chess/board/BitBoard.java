@@ -0,0 +1,1061 @@
+/*
+ * BitBoard.java
+ *
+ */
+
+package no.hist.aitel.chess.board;
+
+import no.hist.aitel.chess.piece.IllegalTypeException;
+import no.hist.aitel.chess.piece.Piece;
+import static no.hist.aitel.chess.board.Attacks.*;
+import static no.hist.aitel.chess.piece.PieceConstants.*;
+
+/**
+ * Bitboard representation of the pieces on a board. Each of the twelve piece sets (color and
+ * type) is a long where bit n is set if the piece stands on position n, using the same
+ * numbering as Board (0 = A1, 7 = H1, 63 = H8).
+ * @author martin
+ */
+
+public class BitBoard {
+
+    /**
+     * Castling rights, combined as bit flags
+     */
+    public static final int WHITE_KINGSIDE = 1;
+    public static final int WHITE_QUEENSIDE = 2;
+    public static final int BLACK_KINGSIDE = 4;
+    public static final int BLACK_QUEENSIDE = 8;
+
+    /**
+     * FEN letter of each type
+     */
+    private static final String FEN_LETTERS = "pbnrqk";
+
+    /**
+     * Mask for the light positions, A1 is dark
+     */
+    private static final long LIGHT = 0x55AA55AA55AA55AAL;
+
+    /**
+     * Piece sets indexed by color * 6 + type
+     */
+    private long[] pieces = new long[12];
+
+    /**
+     * Occupied positions for each color
+     */
+    private long[] colors = new long[2];
+
+    /**
+     * All occupied positions
+     */
+    private long occupied;
+
+    /**
+     * Piece set index for each position, or UNDEFINED if the position is empty
+     */
+    private int[] squares = new int[64];
+
+    /**
+     * The color to move
+     */
+    private int turn = WHITE;
+
+    /**
+     * Remaining castling rights
+     */
+    private int castling = 0;
+
+    /**
+     * The position a pawn can be captured en passant on, or UNDEFINED
+     */
+    private int enPassant = UNDEFINED;
+
+    /**
+     * Number of moves since the last capture or pawn move
+     */
+    private int halfMoves = 0;
+
+    /**
+     * Number of the current move, starting at 1 and increased after each black move
+     */
+    private int fullMoves = 1;
+
+    /**
+     * Undo records for the moves made, see makeMove()
+     */
+    private long[] history = new long[256];
+
+    /**
+     * Number of moves in history
+     */
+    private int ply = 0;
+
+    /**
+     * Pieces giving check to the king of the player whose turn it is
+     */
+    private long checkers = 0;
+
+    /**
+     * Checkers before each move in history
+     */
+    private long[] checkersHistory = new long[256];
+
+    /**
+     * Zobrist hash of the position, see Zobrist
+     */
+    private long hash = 0;
+
+    /**
+     * Hash before each move in history
+     */
+    private long[] hashHistory = new long[256];
+
+    /**
+     * Zobrist hash of the pawns only
+     */
+    private long pawnHash = 0;
+
+    /**
+     * Sum of the middlegame and endgame values of the pieces, and the phase of the position,
+     * see PieceSquareTables
+     */
+    private int middlegame = 0;
+    private int endgame = 0;
+    private int phase = 0;
+
+    /**
+     * Creates an empty bitboard
+     */
+    public BitBoard() {
+        for (int position = 0; position < squares.length; position++) {
+            squares[position] = UNDEFINED;
+        }
+    }
+
+    /**
+     * Creates a bitboard from an array of pieces
+     * @param board
+     */
+    public BitBoard(Piece[] board) {
+        this();
+        for (int position = 0; position < board.length; position++) {
+            if (!board[position].isEmpty()) {
+                setPiece(position, board[position].getColor(), board[position].getType());
+            }
+        }
+        // Derive castling rights from kings and rooks which haven't moved yet
+        if (isUnmoved(board, 4, WHITE, KING)) {
+            if (isUnmoved(board, 7, WHITE, ROOK)) {
+                castling |= WHITE_KINGSIDE;
+            }
+            if (isUnmoved(board, 0, WHITE, ROOK)) {
+                castling |= WHITE_QUEENSIDE;
+            }
+        }
+        if (isUnmoved(board, 60, BLACK, KING)) {
+            if (isUnmoved(board, 63, BLACK, ROOK)) {
+                castling |= BLACK_KINGSIDE;
+            }
+            if (isUnmoved(board, 56, BLACK, ROOK)) {
+                castling |= BLACK_QUEENSIDE;
+            }
+        }
+        checkers = findCheckers();
+        hash = computeHash();
+    }
+
+    /**
+     * Creates a bitboard from a position in Forsyth-Edwards Notation (FEN). The move counters
+     * may be left out.
+     * @param fen
+     */
+    public BitBoard(String fen) {
+        this();
+        int length = fen.length();
+        int i = 0;
+
+        // Piece placement, from rank 8 to rank 1
+        int rank = 7, file = 0;
+        for (; i < length && fen.charAt(i) != ' '; i++) {
+            char c = fen.charAt(i);
+            if (c == '/') {
+                if (file != 8 || rank == 0) {
+                    throw new IllegalArgumentException("Invalid FEN placement: " + fen);
+                }
+                rank--;
+                file = 0;
+            } else if (c >= '1' && c <= '8') {
+                file += c - '0';
+            } else {
+                int type = getFenType(c);
+                if (type == UNDEFINED || file > 7) {
+                    throw new IllegalArgumentException("Invalid FEN placement: " + fen);
+                }
+                setPiece(rank * 8 + file, Character.isUpperCase(c) ? WHITE : BLACK, type);
+                file++;
+            }
+        }
+        if (rank != 0 || file != 8) {
+            throw new IllegalArgumentException("Invalid FEN placement: " + fen);
+        }
+
+        // Side to move
+        i++;
+        if (i >= length) {
+            throw new IllegalArgumentException("Missing side to move in FEN: " + fen);
+        } else if (fen.charAt(i) == 'w') {
+            turn = WHITE;
+        } else if (fen.charAt(i) == 'b') {
+            turn = BLACK;
+        } else {
+            throw new IllegalArgumentException("Invalid side to move in FEN: " + fen);
+        }
+        i = skipFenSeparator(fen, i + 1, "side to move");
+
+        // Castling rights
+        for (; i < length && fen.charAt(i) != ' '; i++) {
+            switch (fen.charAt(i)) {
+                case 'K': {
+                    castling |= WHITE_KINGSIDE;
+                    break;
+                }
+                case 'Q': {
+                    castling |= WHITE_QUEENSIDE;
+                    break;
+                }
+                case 'k': {
+                    castling |= BLACK_KINGSIDE;
+                    break;
+                }
+                case 'q': {
+                    castling |= BLACK_QUEENSIDE;
+                    break;
+                }
+                case '-': {
+                    break;
+                }
+                default: {
+                    throw new IllegalArgumentException("Invalid castling rights in FEN: " + fen);
+                }
+            }
+        }
+        i++;
+        // Rights without the king and rook on their initial positions can't be used
+        if (squares[4] != getIndex(WHITE, KING)) {
+            castling &= ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+        }
+        if (squares[7] != getIndex(WHITE, ROOK)) {
+            castling &= ~WHITE_KINGSIDE;
+        }
+        if (squares[0] != getIndex(WHITE, ROOK)) {
+            castling &= ~WHITE_QUEENSIDE;
+        }
+        if (squares[60] != getIndex(BLACK, KING)) {
+            castling &= ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+        }
+        if (squares[63] != getIndex(BLACK, ROOK)) {
+            castling &= ~BLACK_KINGSIDE;
+        }
+        if (squares[56] != getIndex(BLACK, ROOK)) {
+            castling &= ~BLACK_QUEENSIDE;
+        }
+
+        // En passant position
+        if (i < length && fen.charAt(i) != '-') {
+            if (i + 1 >= length) {
+                throw new IllegalArgumentException("Invalid en passant position in FEN: " + fen);
+            }
+            int epFile = fen.charAt(i) - 'a';
+            int epRank = fen.charAt(i + 1) - '1';
+            if (epFile < 0 || epFile > 7 || (epRank != 2 && epRank != 5)) {
+                throw new IllegalArgumentException("Invalid en passant position in FEN: " + fen);
+            }
+            enPassant = epRank * 8 + epFile;
+            i++;
+        }
+        i = skipFenSeparator(fen, i + 1, "en passant position");
+        // The position is only kept if a pawn of the player not to move can just have passed
+        // it, as some writers always give it
+        if (enPassant != UNDEFINED) {
+            int direction = turn == WHITE ? -8 : 8;
+            if (getRank(enPassant) != (turn == WHITE ? 5 : 2)
+                    || squares[enPassant] != UNDEFINED
+                    || squares[enPassant - direction] != UNDEFINED
+                    || squares[enPassant + direction] != getIndex(turn ^ 1, PAWN)) {
+                enPassant = UNDEFINED;
+            }
+        }
+
+        // Move counters
+        if (i < length) {
+            halfMoves = 0;
+            for (; i < length && fen.charAt(i) != ' '; i++) {
+                halfMoves = halfMoves * 10 + getFenDigit(fen, i);
+            }
+            i++;
+            if (i < length) {
+                fullMoves = 0;
+                for (; i < length && fen.charAt(i) != ' '; i++) {
+                    fullMoves = fullMoves * 10 + getFenDigit(fen, i);
+                }
+            }
+        }
+        checkers = findCheckers();
+        hash = computeHash();
+    }
+
+    /**
+     * Get the position in Forsyth-Edwards Notation
+     * @return The FEN
+     */
+    public String toFen() {
+        StringBuilder fen = new StringBuilder(90);
+        for (int rank = 7; rank >= 0; rank--) {
+            int empty = 0;
+            for (int file = 0; file < 8; file++) {
+                int index = squares[rank * 8 + file];
+                if (index == UNDEFINED) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    fen.append((char) ('0' + empty));
+                    empty = 0;
+                }
+                char c = FEN_LETTERS.charAt(index % 6);
+                fen.append(index < 6 ? Character.toUpperCase(c) : c);
+            }
+            if (empty > 0) {
+                fen.append((char) ('0' + empty));
+            }
+            if (rank > 0) {
+                fen.append('/');
+            }
+        }
+        fen.append(turn == WHITE ? " w " : " b ");
+        if (castling == 0) {
+            fen.append('-');
+        } else {
+            if (hasCastling(WHITE_KINGSIDE)) {
+                fen.append('K');
+            }
+            if (hasCastling(WHITE_QUEENSIDE)) {
+                fen.append('Q');
+            }
+            if (hasCastling(BLACK_KINGSIDE)) {
+                fen.append('k');
+            }
+            if (hasCastling(BLACK_QUEENSIDE)) {
+                fen.append('q');
+            }
+        }
+        fen.append(' ');
+        if (enPassant == UNDEFINED) {
+            fen.append('-');
+        } else {
+            fen.append((char) ('a' + getFile(enPassant))).append((char) ('1' + getRank(enPassant)));
+        }
+        fen.append(' ').append(halfMoves).append(' ').append(fullMoves);
+        return fen.toString();
+    }
+
+    /**
+     * Get the type of a FEN piece letter
+     * @param c
+     * @return The type or UNDEFINED if the letter isn't a piece
+     */
+    private static int getFenType(char c) {
+        switch (Character.toLowerCase(c)) {
+            case 'p': {
+                return PAWN;
+            }
+            case 'b': {
+                return BISHOP;
+            }
+            case 'n': {
+                return KNIGHT;
+            }
+            case 'r': {
+                return ROOK;
+            }
+            case 'q': {
+                return QUEEN;
+            }
+            case 'k': {
+                return KING;
+            }
+            default: {
+                return UNDEFINED;
+            }
+        }
+    }
+
+    /**
+     * Check that a FEN field is followed by a space or the end of the FEN
+     * @param fen
+     * @param i The position after the field
+     * @param field The name of the field
+     * @return The position of the next field
+     */
+    private static int skipFenSeparator(String fen, int i, String field) {
+        if (i < fen.length() && fen.charAt(i) != ' ') {
+            throw new IllegalArgumentException("Invalid " + field + " in FEN: " + fen);
+        }
+        return i + 1;
+    }
+
+    /**
+     * Get a digit of a FEN move counter
+     * @param fen
+     * @param i
+     * @return The digit
+     */
+    private static int getFenDigit(String fen, int i) {
+        char c = fen.charAt(i);
+        if (c < '0' || c > '9') {
+            throw new IllegalArgumentException("Invalid move counter in FEN: " + fen);
+        }
+        return c - '0';
+    }
+
+    /**
+     * Check if a position holds a piece of the given color and type which hasn't been moved
+     * @param board
+     * @param position
+     * @param color
+     * @param type
+     * @return True if the piece is there and unmoved and false otherwise
+     */
+    private static boolean isUnmoved(Piece[] board, int position, int color, int type) {
+        Piece piece = board[position];
+        return piece.getColor() == color && piece.getType() == type && !piece.isMoved();
+    }
+
+    /**
+     * Creates a copy of another bitboard
+     * @param other
+     */
+    public BitBoard(BitBoard other) {
+        pieces = other.pieces.clone();
+        colors = other.colors.clone();
+        occupied = other.occupied;
+        squares = other.squares.clone();
+        turn = other.turn;
+        castling = other.castling;
+        enPassant = other.enPassant;
+        halfMoves = other.halfMoves;
+        fullMoves = other.fullMoves;
+        history = other.history.clone();
+        ply = other.ply;
+        checkers = other.checkers;
+        checkersHistory = other.checkersHistory.clone();
+        hash = other.hash;
+        hashHistory = other.hashHistory.clone();
+        pawnHash = other.pawnHash;
+        middlegame = other.middlegame;
+        endgame = other.endgame;
+        phase = other.phase;
+    }
+
+    /**
+     * Get the piece set index of a color and type
+     * @param color
+     * @param type
+     * @return The index
+     */
+    public static int getIndex(int color, int type) {
+        return color * 6 + type;
+    }
+
+    /**
+     * Place a piece on a position, replacing any piece already there. Used when setting up
+     * positions, the check state is only updated by the constructors and makeMove().
+     * @param position
+     * @param color
+     * @param type
+     */
+    public void setPiece(int position, int color, int type) {
+        if (type < PAWN || type > KING) {
+            throw new IllegalTypeException("Invalid type: " + type);
+        }
+        removePiece(position);
+        put(position, getIndex(color, type));
+    }
+
+    /**
+     * Remove the piece on a position, if any
+     * @param position
+     */
+    public void removePiece(int position) {
+        if (squares[position] != UNDEFINED) {
+            clear(position);
+        }
+    }
+
+    /**
+     * Place a piece on an empty position
+     * @param position
+     * @param index Piece set index
+     */
+    private void put(int position, int index) {
+        long bit = 1L << position;
+        pieces[index] |= bit;
+        colors[index / 6] |= bit;
+        occupied |= bit;
+        squares[position] = index;
+        hash ^= Zobrist.getPiece(index, position);
+        if (index % 6 == PAWN) {
+            pawnHash ^= Zobrist.getPiece(index, position);
+        }
+        middlegame += PieceSquareTables.getMiddlegame(index, position);
+        endgame += PieceSquareTables.getEndgame(index, position);
+        phase += PieceSquareTables.getPhase(index);
+    }
+
+    /**
+     * Remove the piece on an occupied position
+     * @param position
+     */
+    private void clear(int position) {
+        int index = squares[position];
+        long bit = ~(1L << position);
+        pieces[index] &= bit;
+        colors[index / 6] &= bit;
+        occupied &= bit;
+        squares[position] = UNDEFINED;
+        hash ^= Zobrist.getPiece(index, position);
+        if (index % 6 == PAWN) {
+            pawnHash ^= Zobrist.getPiece(index, position);
+        }
+        middlegame -= PieceSquareTables.getMiddlegame(index, position);
+        endgame -= PieceSquareTables.getEndgame(index, position);
+        phase -= PieceSquareTables.getPhase(index);
+    }
+
+    /**
+     * Make a move for the player whose turn it is. The move is assumed to be pseudo-legal, and
+     * everything needed to take it back is pushed on the history as a single long:
+     * bits 0-15 move, 16-19 captured piece index + 1, 20-23 castling rights,
+     * 24-30 en passant position + 1 and 32-47 half move clock.
+     * @param move
+     */
+    public void makeMove(int move) {
+        int from = Move.getFrom(move);
+        int to = Move.getTo(move);
+        int flag = Move.getFlag(move);
+        int index = squares[from];
+
+        int capturedAt = to;
+        if (flag == Move.EN_PASSANT) {
+            capturedAt = turn == WHITE ? to - 8 : to + 8;
+        }
+        int captured = squares[capturedAt];
+
+        if (ply == history.length) {
+            long[] grown = new long[history.length * 2];
+            System.arraycopy(history, 0, grown, 0, ply);
+            history = grown;
+            grown = new long[history.length];
+            System.arraycopy(checkersHistory, 0, grown, 0, ply);
+            checkersHistory = grown;
+            grown = new long[history.length];
+            System.arraycopy(hashHistory, 0, grown, 0, ply);
+            hashHistory = grown;
+        }
+        checkersHistory[ply] = checkers;
+        hashHistory[ply] = hash;
+        history[ply++] = (move & 0xFFFFL) | ((long) (captured + 1) << 16)
+                | ((long) castling << 20) | ((long) (enPassant + 1) << 24)
+                | ((long) halfMoves << 32);
+        hash ^= Zobrist.getCastling(castling) ^ Zobrist.getEnPassant(getHashEnPassant());
+
+        if (captured != UNDEFINED) {
+            clear(capturedAt);
+        }
+        clear(from);
+        if ((flag & Move.PROMOTION) != 0) {
+            put(to, getIndex(turn, flag & 7));
+        } else {
+            put(to, index);
+        }
+        if (flag == Move.CASTLING) {
+            if (to > from) {
+                put(from + 1, squares[from + 3]);
+                clear(from + 3);
+            } else {
+                put(from - 1, squares[from - 4]);
+                clear(from - 4);
+            }
+        }
+
+        if (captured != UNDEFINED || index % 6 == PAWN) {
+            halfMoves = 0;
+        } else {
+            halfMoves++;
+        }
+        castling &= getCastlingMask(from) & getCastlingMask(to);
+        enPassant = flag == Move.DOUBLE_PAWN ? (from + to) >>> 1 : UNDEFINED;
+        if (turn == BLACK) {
+            fullMoves++;
+        }
+        turn ^= 1;
+        hash ^= Zobrist.getCastling(castling) ^ Zobrist.getEnPassant(getHashEnPassant())
+                ^ Zobrist.getSide();
+
+        // Castling and en passant move two pieces, so look for checks from every piece
+        if (flag == Move.CASTLING || flag == Move.EN_PASSANT) {
+            checkers = findCheckers();
+        } else {
+            checkers = findCheckers(from, to);
+        }
+    }
+
+    /**
+     * Take back the last move made with makeMove()
+     */
+    public void unmakeMove() {
+        long undo = history[--ply];
+        int move = (int) (undo & 0xFFFF);
+        int from = Move.getFrom(move);
+        int to = Move.getTo(move);
+        int flag = Move.getFlag(move);
+
+        turn ^= 1;
+        if (turn == BLACK) {
+            fullMoves--;
+        }
+
+        if (flag == Move.CASTLING) {
+            if (to > from) {
+                put(from + 3, squares[from + 1]);
+                clear(from + 1);
+            } else {
+                put(from - 4, squares[from - 1]);
+                clear(from - 1);
+            }
+        }
+        if ((flag & Move.PROMOTION) != 0) {
+            put(from, getIndex(turn, PAWN));
+        } else {
+            put(from, squares[to]);
+        }
+        clear(to);
+
+        int captured = (int) ((undo >>> 16) & 15) - 1;
+        if (captured != UNDEFINED) {
+            if (flag == Move.EN_PASSANT) {
+                put(turn == WHITE ? to - 8 : to + 8, captured);
+            } else {
+                put(to, captured);
+            }
+        }
+
+        castling = (int) ((undo >>> 20) & 15);
+        enPassant = (int) ((undo >>> 24) & 127) - 1;
+        halfMoves = (int) ((undo >>> 32) & 0xFFFF);
+        checkers = checkersHistory[ply];
+        hash = hashHistory[ply];
+    }
+
+    /**
+     * Find all pieces giving check to the king of the player whose turn it is
+     * @return The checking pieces
+     */
+    private long findCheckers() {
+        int king = getKing(turn);
+        return king == -1 ? 0 : getAttackers(king, turn ^ 1, occupied);
+    }
+
+    /**
+     * Find pieces giving check after a piece moved. Only the moved piece can give a direct
+     * check, and only a slider on the line from the king through the from position can give
+     * a discovered check, since the king couldn't be in check before the move.
+     * @param from
+     * @param to
+     * @return The checking pieces
+     */
+    private long findCheckers(int from, int to) {
+        int king = getKing(turn);
+        if (king == -1) {
+            return 0;
+        }
+        int color = turn ^ 1;
+        long found = 0;
+
+        // Direct check
+        int type = squares[to] % 6;
+        long attacks;
+        switch (type) {
+            case PAWN: {
+                attacks = getPawnAttacks(color, to);
+                break;
+            }
+            case KNIGHT: {
+                attacks = getKnightAttacks(to);
+                break;
+            }
+            case BISHOP: {
+                attacks = getBishopAttacks(to, occupied);
+                break;
+            }
+            case ROOK: {
+                attacks = getRookAttacks(to, occupied);
+                break;
+            }
+            case QUEEN: {
+                attacks = getQueenAttacks(to, occupied);
+                break;
+            }
+            default: {
+                attacks = 0;
+                break;
+            }
+        }
+        if ((attacks & (1L << king)) != 0) {
+            found |= 1L << to;
+        }
+
+        // Discovered check
+        int direction = getDirection(king, from);
+        if (direction != UNDEFINED) {
+            long sliders = getPieces(color, QUEEN) | getPieces(color,
+                    isDiagonal(direction) ? BISHOP : ROOK);
+            found |= getRayAttacks(direction, king, occupied) & sliders;
+        }
+        return found;
+    }
+
+    /**
+     * Get the pieces giving check to the king of the player whose turn it is
+     * @return The checking pieces
+     */
+    public long getCheckers() {
+        return checkers;
+    }
+
+    /**
+     * Check if the player whose turn it is is in check
+     * @return True if in check and false otherwise
+     */
+    public boolean isCheck() {
+        return checkers != 0;
+    }
+
+    /**
+     * Get the Zobrist hash of the position. Positions with the same pieces, side to move,
+     * castling rights and en passant position have the same hash, where the en passant
+     * position only counts if a pawn can capture there.
+     * @return The hash
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Get the sum of the middlegame values of the pieces
+     * @return The sum, positive if white is better
+     */
+    public int getMiddlegame() {
+        return middlegame;
+    }
+
+    /**
+     * Get the sum of the endgame values of the pieces
+     * @return The sum, positive if white is better
+     */
+    public int getEndgame() {
+        return endgame;
+    }
+
+    /**
+     * Get the phase of the position, from 0 with only kings and pawns left up to
+     * PieceSquareTables.MAX_PHASE with all pieces on the board
+     * @return The phase, which may exceed MAX_PHASE after promotions
+     */
+    public int getPhase() {
+        return phase;
+    }
+
+    /**
+     * Check if the position has occurred before since the last capture or pawn move, with
+     * the same player to move
+     * @return True if the position is a repetition and false otherwise
+     */
+    public boolean isRepetition() {
+        int start = Math.max(ply - halfMoves, 0);
+        for (int i = ply - 4; i >= start; i -= 2) {
+            if (hashHistory[i] == hash) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check if neither player has the material left to mate: no pawns, rooks or queens, and
+     * at most one minor piece or only bishops all on the same color of position
+     * @return True if the material is insufficient and false otherwise
+     */
+    public boolean isInsufficientMaterial() {
+        long heavy = 0;
+        for (int color = WHITE; color <= BLACK; color++) {
+            heavy |= pieces[getIndex(color, PAWN)] | pieces[getIndex(color, ROOK)]
+                    | pieces[getIndex(color, QUEEN)];
+        }
+        if (heavy != 0) {
+            return false;
+        }
+        long knights = pieces[getIndex(WHITE, KNIGHT)] | pieces[getIndex(BLACK, KNIGHT)];
+        long bishops = pieces[getIndex(WHITE, BISHOP)] | pieces[getIndex(BLACK, BISHOP)];
+        if (Long.bitCount(knights | bishops) <= 1) {
+            return true;
+        }
+        return knights == 0 && ((bishops & LIGHT) == 0 || (bishops & ~LIGHT) == 0);
+    }
+
+    /**
+     * Get the Zobrist hash of the pawns, which only changes when a pawn moves, is captured or
+     * promotes
+     * @return The hash
+     */
+    public long getPawnHash() {
+        return pawnHash;
+    }
+
+    /**
+     * Get the en passant position as it counts in the hash, only if a pawn of the player whose
+     * turn it is can capture there. Otherwise a double pawn push would give a different hash
+     * than the same position reached by other moves.
+     * @return The position, or UNDEFINED if it doesn't count
+     */
+    private int getHashEnPassant() {
+        if (enPassant == UNDEFINED
+                || (getPawnAttacks(turn ^ 1, enPassant) & pieces[getIndex(turn, PAWN)]) == 0) {
+            return UNDEFINED;
+        }
+        return enPassant;
+    }
+
+    /**
+     * Compute the Zobrist hash of the position from scratch
+     * @return The hash
+     */
+    public long computeHash() {
+        long computed = Zobrist.getCastling(castling) ^ Zobrist.getEnPassant(getHashEnPassant());
+        if (turn == BLACK) {
+            computed ^= Zobrist.getSide();
+        }
+        for (int position = 0; position < squares.length; position++) {
+            if (squares[position] != UNDEFINED) {
+                computed ^= Zobrist.getPiece(squares[position], position);
+            }
+        }
+        return computed;
+    }
+
+    /**
+     * Get the last move made
+     * @return The move or Move.NONE if no moves have been made
+     */
+    public int getLastMove() {
+        return ply == 0 ? Move.NONE : (int) (history[ply - 1] & 0xFFFF);
+    }
+
+    /**
+     * Get a move made
+     * @param index The number of moves made before it, less than getPly()
+     * @return The move
+     */
+    public int getMove(int index) {
+        if (index < 0 || index >= ply) {
+            throw new IndexOutOfBoundsException("Invalid move index: " + index);
+        }
+        return (int) (history[index] & 0xFFFF);
+    }
+
+    /**
+     * Get number of moves made with makeMove() which can be taken back
+     * @return The number of moves
+     */
+    public int getPly() {
+        return ply;
+    }
+
+    /**
+     * Get number of moves since the last capture or pawn move
+     * @return The number of moves
+     */
+    public int getHalfMoves() {
+        return halfMoves;
+    }
+
+    /**
+     * Get number of the current move
+     * @return The move number
+     */
+    public int getFullMoves() {
+        return fullMoves;
+    }
+
+    /**
+     * Get the color of the piece on a position
+     * @param position
+     * @return The color or UNDEFINED if the position is empty
+     */
+    public int getColor(int position) {
+        int index = squares[position];
+        return index == UNDEFINED ? UNDEFINED : index / 6;
+    }
+
+    /**
+     * Get the type of the piece on a position
+     * @param position
+     * @return The type or UNDEFINED if the position is empty
+     */
+    public int getType(int position) {
+        int index = squares[position];
+        return index == UNDEFINED ? UNDEFINED : index % 6;
+    }
+
+    /**
+     * Check if a position is empty
+     * @param position
+     * @return True if empty and false otherwise
+     */
+    public boolean isEmpty(int position) {
+        return squares[position] == UNDEFINED;
+    }
+
+    /**
+     * Get all pieces of a color and type
+     * @param color
+     * @param type
+     * @return The piece set
+     */
+    public long getPieces(int color, int type) {
+        return pieces[getIndex(color, type)];
+    }
+
+    /**
+     * Get all positions occupied by a color
+     * @param color
+     * @return The positions
+     */
+    public long getOccupied(int color) {
+        return colors[color];
+    }
+
+    /**
+     * Get all occupied positions
+     * @return The positions
+     */
+    public long getOccupied() {
+        return occupied;
+    }
+
+    /**
+     * Get the color to move
+     * @return The color
+     */
+    public int getTurn() {
+        return turn;
+    }
+
+    /**
+     * Get remaining castling rights
+     * @return The castling rights as bit flags
+     */
+    public int getCastling() {
+        return castling;
+    }
+
+    /**
+     * Check if a castling right remains
+     * @param right
+     * @return True if the right remains and false otherwise
+     */
+    public boolean hasCastling(int right) {
+        return (castling & right) != 0;
+    }
+
+    /**
+     * Get the castling rights which survive a move touching a position
+     * @param position
+     * @return Mask of surviving rights
+     */
+    private static int getCastlingMask(int position) {
+        switch (position) {
+            case 0: {
+                return ~WHITE_QUEENSIDE;
+            }
+            case 4: {
+                return ~(WHITE_KINGSIDE | WHITE_QUEENSIDE);
+            }
+            case 7: {
+                return ~WHITE_KINGSIDE;
+            }
+            case 56: {
+                return ~BLACK_QUEENSIDE;
+            }
+            case 60: {
+                return ~(BLACK_KINGSIDE | BLACK_QUEENSIDE);
+            }
+            case 63: {
+                return ~BLACK_KINGSIDE;
+            }
+            default: {
+                return ~0;
+            }
+        }
+    }
+
+    /**
+     * Get the en passant position
+     * @return The position a pawn can be captured en passant on, or UNDEFINED
+     */
+    public int getEnPassant() {
+        return enPassant;
+    }
+
+    /**
+     * Get the position of a king
+     * @param color
+     * @return The position or -1 if there is no king of the given color
+     */
+    public int getKing(int color) {
+        long king = pieces[getIndex(color, KING)];
+        return king == 0 ? -1 : Long.numberOfTrailingZeros(king);
+    }
+
+    /**
+     * Check if a position is attacked by any piece of a color
+     * @param position
+     * @param color The attacking color
+     * @return True if attacked and false otherwise
+     */
+    public boolean isAttacked(int position, int color) {
+        if (position < 0) {
+            return false;
+        }
+        return getAttackers(position, color, occupied) != 0;
+    }
+
+    /**
+     * Get all pieces of a color attacking a position
+     * @param position
+     * @param color The attacking color
+     * @param occupied The occupancy used for sliding pieces
+     * @return The attacking pieces
+     */
+    public long getAttackers(int position, int color, long occupied) {
+        long queens = getPieces(color, QUEEN);
+        return (getPawnAttacks(color ^ 1, position) & getPieces(color, PAWN))
+                | (getKnightAttacks(position) & getPieces(color, KNIGHT))
+                | (getKingAttacks(position) & getPieces(color, KING))
+                | (getBishopAttacks(position, occupied) & (getPieces(color, BISHOP) | queens))
+                | (getRookAttacks(position, occupied) & (getPieces(color, ROOK) | queens));
+    }
+
+}
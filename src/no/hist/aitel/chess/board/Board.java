@@ -5,34 +5,170 @@
 
 package no.hist.aitel.chess.board;
 
-import java.io.Serializable;
 import no.hist.aitel.chess.piece.IllegalTypeException;
 import no.hist.aitel.chess.piece.Piece;
 import no.hist.aitel.chess.position.IllegalPositionException;
 import no.hist.aitel.chess.position.IllegalSpecialPositionException;
 import no.hist.aitel.chess.position.Position;
 import static no.hist.aitel.chess.piece.PieceConstants.*;
+import static no.hist.aitel.chess.position.PositionConstants.*;
 
 /**
  *
  * @author martin
  */
 
-public class Board implements Serializable, Cloneable {
+public class Board {
 
     final private int size = 64;
+
+    /**
+     * Types of the first and last rank in a new game
+     */
+    private static final int[] INITIAL_TYPES = {ROOK, KNIGHT, BISHOP, QUEEN, KING, BISHOP,
+            KNIGHT, ROOK};
     private Piece[] board = new Piece[size];
-    private int turn = WHITE;
     private boolean inCheck = false;
     private boolean checkMate = false;
-    private boolean fake = false;
     private Position p = new Position(this);
+    private BitBoard bits;
+
+    /**
+     * List reused when looking for legal moves after each move
+     */
+    private MoveList moves = new MoveList();
+
+    /**
+     * The FEN the board was created from, or null for a new game
+     */
+    private String startFen = null;
     
     /**
      * Creates the board and makes it ready for a new game
      */
     public Board() {
         board = new BoardInit().getInitBoard();
+        bits = new BitBoard(board);
+    }
+
+    /**
+     * Creates a board with the pieces of a bitboard
+     * @param bits
+     */
+    private Board(BitBoard bits) {
+        this.bits = bits;
+        fillBoard();
+        updateInCheck();
+        updateCheckMate();
+    }
+
+    /**
+     * Creates a board from a position in Forsyth-Edwards Notation
+     * @param fen
+     * @return The board
+     * @throws IllegalArgumentException If the FEN isn't valid
+     */
+    public static Board fromFen(String fen) {
+        Board board = new Board(new BitBoard(fen));
+        board.startFen = fen;
+        return board;
+    }
+
+    /**
+     * Get the position the game on this board started from
+     * @return The FEN given to fromFen(), or null if the game started from the initial
+     * position
+     */
+    public String getStartFen() {
+        return startFen;
+    }
+
+    /**
+     * Get the position in Forsyth-Edwards Notation
+     * @return The FEN
+     */
+    public String toFen() {
+        return bits.toFen();
+    }
+
+    /**
+     * Fill the pieces from the bitboard. Pieces on their initial position keep the id they
+     * have in a new game, the others get the free ids of their color (white 0-15, black
+     * 48-63). Pawns on their initial rank and the other pieces on their initial positions are
+     * unmoved, except kings and rooks without their castling right.
+     */
+    private void fillBoard() {
+        boolean[] used = new boolean[size];
+        for (int position = 0; position < size; position++) {
+            if (isInitial(position)) {
+                board[position] = new Piece(bits.getColor(position), bits.getType(position),
+                        position);
+                used[position] = true;
+            }
+        }
+        int[] next = {0, 48};
+        for (int position = 0; position < size; position++) {
+            int color = bits.getColor(position);
+            if (color == UNDEFINED) {
+                board[position] = new Piece();
+            } else if (board[position] == null) {
+                while (next[color] < size && used[next[color]]) {
+                    next[color]++;
+                }
+                if (next[color] >= (color == WHITE ? 16 : size)) {
+                    throw new IllegalArgumentException("More than 16 pieces of one color");
+                }
+                used[next[color]] = true;
+                board[position] = new Piece(color, bits.getType(position), next[color]);
+            }
+            board[position].setMoved(color != UNDEFINED && !isUnmoved(position));
+        }
+    }
+
+    /**
+     * Check if a position holds the piece it has in a new game
+     * @param position
+     * @return True if it does and false otherwise
+     */
+    private boolean isInitial(int position) {
+        int rank = Attacks.getRank(position);
+        int expected;
+        if (rank == 1 || rank == 6) {
+            expected = PAWN;
+        } else if (rank == 0 || rank == 7) {
+            expected = INITIAL_TYPES[Attacks.getFile(position)];
+        } else {
+            return false;
+        }
+        return bits.getType(position) == expected
+                && bits.getColor(position) == (rank < 2 ? WHITE : BLACK);
+    }
+
+    /**
+     * Check if the piece on a position counts as unmoved
+     * @param position
+     * @return True if unmoved and false otherwise
+     */
+    private boolean isUnmoved(int position) {
+        switch (bits.getType(position)) {
+            case PAWN: {
+                return Attacks.getRank(position) == (bits.getColor(position) == WHITE ? 1 : 6);
+            }
+            case KING: {
+                return (position == 4 && bits.hasCastling(BitBoard.WHITE_KINGSIDE
+                        | BitBoard.WHITE_QUEENSIDE)) || (position == 60
+                        && bits.hasCastling(BitBoard.BLACK_KINGSIDE | BitBoard.BLACK_QUEENSIDE));
+            }
+            case ROOK: {
+                return (position == 0 && bits.hasCastling(BitBoard.WHITE_QUEENSIDE))
+                        || (position == 7 && bits.hasCastling(BitBoard.WHITE_KINGSIDE))
+                        || (position == 56 && bits.hasCastling(BitBoard.BLACK_QUEENSIDE))
+                        || (position == 63 && bits.hasCastling(BitBoard.BLACK_KINGSIDE));
+            }
+            default: {
+                return isInitial(position);
+            }
+        }
     }
 
     /**
@@ -40,10 +176,10 @@ public class Board implements Serializable, Cloneable {
      */
     public void reset() {
         board = new BoardInit().getInitBoard();
-        turn = WHITE;
+        bits = new BitBoard(board);
+        startFen = null;
         inCheck = false;
         checkMate = false;
-        fake = false;
         p = new Position(this);
     }
 
@@ -57,7 +193,7 @@ public class Board implements Serializable, Cloneable {
     }
 
     /**
-     * Set piece
+     * Set piece, the bitboard is updated separately by makeMove()
      * @param position
      * @param piece
      */
@@ -65,12 +201,53 @@ public class Board implements Serializable, Cloneable {
         board[position] = piece;
     }
 
+    /**
+     * Get the bitboard representation of the pieces on this board
+     * @return The bitboard
+     */
+    public BitBoard getBitBoard() {
+        return bits;
+    }
+
+    /**
+     * Get the Zobrist hash of the current position, updated with each move. The hash covers
+     * the pieces, the player to move, castling rights and the en passant position.
+     * @return The hash
+     */
+    public long getHash() {
+        return bits.getHash();
+    }
+
+    /**
+     * Change the type a pawn was promoted to in the last move
+     * @param position
+     * @param type
+     * @throws BoardException
+     */
+    public void promotePiece(int position, int type) throws BoardException {
+        int last = bits.getLastMove();
+        if (!Move.isPromotion(last) || Move.getTo(last) != position) {
+            throw new BoardException("Only a pawn promoted in the last move can be changed.\n" +
+                    "\nPosition: " + position);
+        }
+        if (type != BISHOP && type != KNIGHT && type != ROOK && type != QUEEN) {
+            throw new IllegalTypeException("Invalid promotion type: " + type);
+        }
+        bits.unmakeMove();
+        bits.makeMove(Move.createPromotion(Move.getFrom(last), position, type));
+        getPiece(position).setType(type);
+
+        // The new piece may give check
+        updateInCheck();
+        updateCheckMate();
+    }
+
     /**
      * Get enPassant from Position object
      * @return True if previous move was a pawn moving two fields forward (from initial position)
      */
     public boolean getEnPassant() {
-        return p.getEnPassant();
+        return bits.getEnPassant() != UNDEFINED;
     }
 
     /**
@@ -86,12 +263,28 @@ public class Board implements Serializable, Cloneable {
     }
 
     /**
-     * Move a piece using positions
+     * Move a piece using positions, pawns reaching the last rank are promoted to queens
      * @param from
      * @param to
      * @throws BoardException
      */
     public void movePiece(int from, int to) throws BoardException {
+        movePiece(from, to, QUEEN);
+    }
+
+    /**
+     * Move a piece using positions
+     * @param from
+     * @param to
+     * @param promotion The type pawns reaching the last rank are promoted to
+     * @throws BoardException
+     */
+    public void movePiece(int from, int to, int promotion) throws BoardException {
+
+        // Check if current player is check mate
+        if (isCheckMate()) {
+            throw new CheckMateException("Game over");
+        }
 
         // Check if piece in 'from' is empty
         if (getPiece(from).isEmpty()) {
@@ -105,60 +298,75 @@ public class Board implements Serializable, Cloneable {
             throw new BoardException("Not allowed to move now.");
         }
 
-        // Save the pieces we're moving, in case we need to revert the move
-        Piece fromPiece = getPiece(from);
-        Piece toPiece = getPiece(to);
-
         // Set our positions
         p.setPositions(from, to);
 
         // Check if we're doing a special move
+        int move;
         if (p.isCastling()) {
-            doCastling(from, to);
+            move = Move.create(from, to, Move.CASTLING);
         } else if (p.isEnPassant()) {
-            doEnPassant(from, to);
+            move = Move.create(from, to, Move.EN_PASSANT);
         } else {
 
-            // Regular move
-            p.verifyPositions(false);
-            doRegularMove(from, to);
-
-        }
+            // Regular move, validated without exceptions and reported once here
+            int reason = p.check(from, to);
+            if (reason != VALID) {
+                throw new IllegalPositionException(p.getMessage(reason));
+            }
+            if (getPiece(from).getType() != PAWN) {
+                move = Move.create(from, to, Move.NORMAL);
+            } else if (Math.abs(to - from) == 16) {
+                move = Move.create(from, to, Move.DOUBLE_PAWN);
+            } else if (to >= 56 || to <= 7) {
+                if (promotion != BISHOP && promotion != KNIGHT && promotion != ROOK
+                        && promotion != QUEEN) {
+                    throw new IllegalTypeException("Invalid promotion type: " + promotion);
+                }
+                move = Move.createPromotion(from, to, promotion);
+            } else {
+                move = Move.create(from, to, Move.NORMAL);
+            }
 
-        // Check if player is in check after move, but wasn't initially in check
-        if (!isInCheck() && inCheckAfterMove() && !isCheckMate()) {
-            // Undo move
-            setPiece(from, fromPiece);
-            setPiece(to, toPiece);
-            throw new CheckException("You can't put yourself in check.\n" +
-                    "\nFrom: " + from +
-                    "\nTo: " + to);
         }
 
-        // Check if player is initially in check and is still in check after move
-        if (isInCheck() && inCheckAfterMove() && !isCheckMate()) {
-            // Undo move
-            setPiece(from, fromPiece);
-            setPiece(to, toPiece);
-            throw new CheckException("Still in check! Move another piece.\n" +
-                    "\nFrom: " + from +
-                    "\nTo: " + to);
+        // Make the move on the bitboard, and take it back if the player is in check after it
+        bits.makeMove(move);
+        if (inCheckAfterMove()) {
+            bits.unmakeMove();
+            if (isInCheck()) {
+                throw new CheckException("Still in check! Move another piece.\n" +
+                        "\nFrom: " + from +
+                        "\nTo: " + to);
+            } else {
+                throw new CheckException("You can't put yourself in check.\n" +
+                        "\nFrom: " + from +
+                        "\nTo: " + to);
+            }
         }
 
-        // Check if current player is check mate
-        // Redundant: GUI calls isCheckMate() after each move
-        if (isCheckMate()) {
-            throw new CheckMateException("Game over");
+        // Move the pieces
+        switch (Move.getFlag(move)) {
+            case Move.CASTLING: {
+                doCastling(from, to);
+                break;
+            }
+            case Move.EN_PASSANT: {
+                doEnPassant(from, to);
+                break;
+            }
+            default: {
+                doRegularMove(from, to);
+                if (Move.isPromotion(move)) {
+                    getPiece(to).setType(promotion);
+                }
+                break;
+            }
         }
 
-        // Update check and check mate state
+        // Update check and check mate state for the player whose turn it is
         updateInCheck();
-        if (!fake) { // Calling updateCheckMate() on fake boards will cause a stack overflow
-            updateCheckMate();
-        }
-
-        // Switch turn
-        switchTurn();
+        updateCheckMate();
     }
 
     /**
@@ -223,65 +431,26 @@ public class Board implements Serializable, Cloneable {
      * @return True if color can move and false otherwise
      */
     private boolean isValidTurn(int color) {
-        return (color == turn);
+        return (color == getTurn());
     }
 
     /**
      * Update current check state
      */
     private void updateInCheck() {
-        int opponent = turn ^ 1;
-        // Check any of the current players pieces has put opponent in check
-        for (int position = 0; position < board.length; position++) {
-            if (getPiece(position).getColor() == turn) {
-                try {
-                    p.setPositions(position, getKing(opponent));
-                    p.verifyPositions(true);
-                    inCheck = true;
-                    break;
-                } catch (IllegalPositionException e) {
-                    inCheck = false;
-                }
-            }
-        }
+        // The bitboard keeps track of the pieces giving check as moves are made
+        inCheck = bits.isCheck();
     }
 
     /**
-     * Check if player is in check after move.
+     * Check if the player who just moved is in check after the move.
      * Essentially the same as updateInCheck, but this method doesn't modify board state
      * @return True if player is in check after move and false otherwise
      */
     private boolean inCheckAfterMove() {
-        int opponent = turn ^ 1;
-        for (int position = 0; position < board.length; position++) {
-            if (getPiece(position).getColor() == opponent) {
-                try {
-                    // Check if any opponent piece can move to my king
-                    p.setPositions(position, getKing(turn));
-                    p.verifyPositions(true);
-                    return true;
-                } catch (IllegalPositionException e) {
-                }
-            }
-        }
-        return false;
-    }
-
-    /**
-     * Get a deep clone of current board
-     * @return The board
-     */
-    private Board getFakeBoard() {
-        Board fakeBoard;
-        try {
-            fakeBoard = (Board)this.clone();
-            fakeBoard.fake = true;
-            fakeBoard.board = board.clone(); // Arrays implement Cloneable by default
-            fakeBoard.p = new Position(fakeBoard); // Position doesn't need to implement Cloneable
-        } catch (CloneNotSupportedException e) {
-            fakeBoard = null;
-        }
-        return fakeBoard;
+        int opponent = getTurn();
+        // Check if any opponent piece attacks my king
+        return bits.isAttacked(getKing(opponent ^ 1), opponent);
     }
 
     /**
@@ -291,30 +460,8 @@ public class Board implements Serializable, Cloneable {
         if (!isInCheck()) {
             checkMate = false;
         } else {
-            // Clone Board object so we can simulate moves
-            Board fakeBoard = getFakeBoard();
-            fakeBoard.switchTurn();
-            out: {
-                for (int from = 0; from < fakeBoard.board.length; from++) {
-                    if (fakeBoard.getPiece(from).getColor() == fakeBoard.turn) {
-                        for (int to = 0; to < fakeBoard.board.length; to++) {
-                            try {
-                                fakeBoard.movePiece(from, to);
-                                if (!fakeBoard.isInCheck()) {
-                                    checkMate = false;
-                                    break out;
-                                }
-                                fakeBoard = getFakeBoard();
-                            } catch (BoardException e) {
-                            } catch (IllegalPositionException e) {
-                            } catch (IllegalTypeException e) {
-                            } catch (CheckException e) {
-                            }
-                            checkMate = true;
-                        }
-                    }
-                }
-            }
+            // Check mate if no legal move gets the player out of check
+            checkMate = !MoveGenerator.hasLegalMoves(bits, moves);
         }
     }
 
@@ -334,12 +481,20 @@ public class Board implements Serializable, Cloneable {
         return checkMate;
     }
 
+    /**
+     * Check if the game is drawn by stalemate, the fifty move rule or insufficient material
+     * @return True if drawn and false otherwise
+     */
+    public boolean isDraw() {
+        return MoveGenerator.isDraw(bits);
+    }
+
     /**
      * Get current turn
      * @return Integer which represents the current turn
      */
     public int getTurn() {
-        return turn;
+        return bits.getTurn();
     }
 
     /**
@@ -348,19 +503,7 @@ public class Board implements Serializable, Cloneable {
      * @return The position
      */
     private int getKing(int color) {
-        for (int position = 0; position < board.length; position++) {
-            if (getPiece(position).getColor() == color && getPiece(position).getType() == KING) {
-                return position;
-            }
-        }
-        return -1;
-    }
-
-    /**
-     * Switches turn
-     */
-    private void switchTurn() {
-        turn ^= 1; // Bitwise flip between 0 and 1
+        return bits.getKing(color);
     }
 
     /**
@@ -369,111 +512,10 @@ public class Board implements Serializable, Cloneable {
      * @return The notation (e.g. A1)
      */
     public String getNotation(int position) {
-        int rank = 0;
-        for (int i = 0; i <= position; i++) {
-            if (i % 8 == 0) {
-                rank++;
-            }
+        if (position < 0 || position > 63) {
+            return "_" + (position < 0 ? 0 : position / 8 + 1);
         }
-
-        char file;
-
-        switch (position) {
-            case 0:
-            case 8:
-            case 16:
-            case 24:
-            case 32:
-            case 40:
-            case 48:
-            case 56: {
-                file = 'A';
-                break;
-            }
-            case 1:
-            case 9:
-            case 17:
-            case 25:
-            case 33:
-            case 41:
-            case 49:
-            case 57: {
-                file = 'B';
-                break;
-            }
-            case 2:
-            case 10:
-            case 18:
-            case 26:
-            case 34:
-            case 42:
-            case 50:
-            case 58: {
-                file = 'C';
-                break;
-            }
-            case 3:
-            case 11:
-            case 19:
-            case 27:
-            case 35:
-            case 43:
-            case 51:
-            case 59: {
-                file = 'D';
-                break;
-            }
-            case 4:
-            case 12:
-            case 20:
-            case 28:
-            case 36:
-            case 44:
-            case 52:
-            case 60: {
-                file = 'E';
-                break;
-            }
-            case 5:
-            case 13:
-            case 21:
-            case 29:
-            case 37:
-            case 45:
-            case 53:
-            case 61: {
-                file = 'F';
-                break;
-            }
-            case 6:
-            case 14:
-            case 22:
-            case 30:
-            case 38:
-            case 46:
-            case 54:
-            case 62: {
-                file = 'G';
-                break;
-            }
-            case 7:
-            case 15:
-            case 23:
-            case 31:
-            case 39:
-            case 47:
-            case 55:
-            case 63: {
-                file = 'H';
-                break;
-            }
-            default: {
-                file = '_';
-                break;
-            }
-        }
-
-        return file + "" + rank;
+        return (char) ('A' + Attacks.getFile(position)) + "" + (Attacks.getRank(position) + 1);
     }
 
     /**
@@ -484,7 +526,6 @@ public class Board implements Serializable, Cloneable {
     private int getPosition(String notation) {
         char file;
         int rank;
-        int position;
         
         if (notation.length() == 2) {
             file = notation.charAt(0);
@@ -502,60 +543,21 @@ public class Board implements Serializable, Cloneable {
                     " (valid ranks are 1-8)");
         }
 
-        int start = 0;
-        for (int i = 1; i < rank; i++) {
-            start += 8;
-        }
-
-        switch (file) {
-            case 'A': {
-                position = start;
-                break;
-            }
-            case 'B': {
-                position = start + 1;
-                break;
-            }
-            case 'C': {
-                position = start + 2;
-                break;
-            }
-            case 'D': {
-                position = start + 3;
-                break;
-            }
-            case 'E': {
-                position = start + 4;
-                break;
-            }
-            case 'F': {
-                position = start + 5;
-                break;
-            }
-            case 'G': {
-                position = start + 6;
-                break;
-            }
-            case 'H': {
-                position = start + 7;
-                break;
-            }
-            default: {
-                throw new IllegalArgumentException("Invalid file in notation: " + file +
-                        " (valid files are A-H)");
-            }
+        if (file < 'A' || file > 'H') {
+            throw new IllegalArgumentException("Invalid file in notation: " + file +
+                    " (valid files are A-H)");
         }
 
-        return position;
+        return (rank - 1) * 8 + (file - 'A');
     }
 
     /**
      * Get a string containing the current board state
-     * @return String containing values of turn, inCheck, checkMate and fake
+     * @return String containing values of turn, inCheck and checkMate
      */
     public String getState() {
-        String out = "turn: " + turn + "\ninCheck: " + inCheck +
-                "\ncheckMate: " + checkMate + "\nfake: " + fake;
+        String out = "turn: " + getTurn() + "\ninCheck: " + inCheck +
+                "\ncheckMate: " + checkMate;
         return out;
     }
 
@@ -0,0 +1,155 @@
+/*
+ * Move.java
+ *
+ */
+
+package no.hist.aitel.chess.board;
+
+import static no.hist.aitel.chess.piece.PieceConstants.*;
+
+/**
+ * Moves are encoded in 16 bits of an int: bits 0-5 hold the from position, bits 6-11 the to
+ * position and bits 12-15 a flag for special moves. Promotions set the PROMOTION bit of the
+ * flag and keep the promoted type in the three lower bits.
+ * @author martin
+ */
+
+public class Move {
+
+    // Don't allow instances of this class
+    private Move() {
+    }
+
+    /**
+     * No move
+     */
+    public static final int NONE = 0;
+
+    /**
+     * Flag for regular moves and captures
+     */
+    public static final int NORMAL = 0;
+
+    /**
+     * Flag for a pawn moving two fields forward from its initial position
+     */
+    public static final int DOUBLE_PAWN = 1;
+
+    /**
+     * Flag for castling, the move holds the king positions
+     */
+    public static final int CASTLING = 2;
+
+    /**
+     * Flag for en passant captures
+     */
+    public static final int EN_PASSANT = 3;
+
+    /**
+     * Flag bit for promotions
+     */
+    public static final int PROMOTION = 8;
+
+    /**
+     * Create a move
+     * @param from
+     * @param to
+     * @param flag
+     * @return The move
+     */
+    public static int create(int from, int to, int flag) {
+        return from | (to << 6) | (flag << 12);
+    }
+
+    /**
+     * Create a promotion move
+     * @param from
+     * @param to
+     * @param type The type the pawn is promoted to
+     * @return The move
+     */
+    public static int createPromotion(int from, int to, int type) {
+        return create(from, to, PROMOTION | type);
+    }
+
+    /**
+     * Get from position
+     * @param move
+     * @return The position
+     */
+    public static int getFrom(int move) {
+        return move & 63;
+    }
+
+    /**
+     * Get to position
+     * @param move
+     * @return The position
+     */
+    public static int getTo(int move) {
+        return (move >>> 6) & 63;
+    }
+
+    /**
+     * Get flag
+     * @param move
+     * @return The flag
+     */
+    public static int getFlag(int move) {
+        return (move >>> 12) & 15;
+    }
+
+    /**
+     * Check if move is a promotion
+     * @param move
+     * @return True if promotion and false otherwise
+     */
+    public static boolean isPromotion(int move) {
+        return (getFlag(move) & PROMOTION) != 0;
+    }
+
+    /**
+     * Get the type a pawn is promoted to
+     * @param move
+     * @return The type or UNDEFINED if the move isn't a promotion
+     */
+    public static int getPromotion(int move) {
+        return isPromotion(move) ? getFlag(move) & 7 : UNDEFINED;
+    }
+
+    /**
+     * Get a string representation of a move in coordinate notation
+     * @param move
+     * @return The move (e.g. e2e4 or e7e8q)
+     */
+    public static String toString(int move) {
+        String out = getSquare(getFrom(move)) + getSquare(getTo(move));
+        switch (getPromotion(move)) {
+            case QUEEN: {
+                return out + "q";
+            }
+            case ROOK: {
+                return out + "r";
+            }
+            case BISHOP: {
+                return out + "b";
+            }
+            case KNIGHT: {
+                return out + "n";
+            }
+            default: {
+                return out;
+            }
+        }
+    }
+
+    /**
+     * Get coordinate notation of a position
+     * @param position
+     * @return The notation (e.g. e2)
+     */
+    private static String getSquare(int position) {
+        return "" + (char) ('a' + (position & 7)) + (char) ('1' + (position >>> 3));
+    }
+
+}
@@ -0,0 +1,413 @@
+/*
+ * MoveGenerator.java
+ *
+ */
+
+package no.hist.aitel.chess.board;
+
+import static no.hist.aitel.chess.board.Attacks.*;
+import static no.hist.aitel.chess.board.BitBoard.*;
+import static no.hist.aitel.chess.piece.PieceConstants.*;
+
+/**
+ * Generates moves for the player whose turn it is. Pseudo-legal moves follow the movement
+ * rules of each piece, legal moves are the pseudo-legal moves which don't leave the player's
+ * own king in check.
+ * @author martin
+ */
+
+public class MoveGenerator {
+
+    /**
+     * Positions which must be empty for castling
+     */
+    private static final long WHITE_KINGSIDE_PATH = (1L << 5) | (1L << 6);
+    private static final long WHITE_QUEENSIDE_PATH = (1L << 1) | (1L << 2) | (1L << 3);
+    private static final long BLACK_KINGSIDE_PATH = WHITE_KINGSIDE_PATH << 56;
+    private static final long BLACK_QUEENSIDE_PATH = WHITE_QUEENSIDE_PATH << 56;
+
+    /**
+     * Positions pawns promote from
+     */
+    private static final long RANK_2 = 0xFFL << 8;
+    private static final long RANK_7 = 0xFFL << 48;
+
+    // Don't allow instances of this class
+    private MoveGenerator() {
+    }
+
+    /**
+     * Generate all legal moves for a board
+     * @param board
+     * @return A new list with the moves
+     */
+    public static MoveList generateLegalMoves(Board board) {
+        return generateLegalMoves(board.getBitBoard(), new MoveList());
+    }
+
+    /**
+     * Generate all legal moves for a board
+     * @param board
+     * @param list The list to fill, existing moves are removed
+     * @return The list
+     */
+    public static MoveList generateLegalMoves(Board board, MoveList list) {
+        return generateLegalMoves(board.getBitBoard(), list);
+    }
+
+    /**
+     * Generate all legal moves for a bitboard
+     * @param bits
+     * @param list The list to fill, existing moves are removed
+     * @return The list
+     */
+    public static MoveList generateLegalMoves(BitBoard bits, MoveList list) {
+        generatePseudoLegalMoves(bits, list);
+        return filterLegal(bits, list);
+    }
+
+    /**
+     * Generate legal captures, including en passant, and promotions to queen. Used by the
+     * search to settle exchanges, so quiet under-promotions are left out.
+     * @param bits
+     * @param list The list to fill, existing moves are removed
+     * @return The list
+     */
+    public static MoveList generateCaptures(BitBoard bits, MoveList list) {
+        list.clear();
+        int color = bits.getTurn();
+        long enemies = bits.getOccupied(color ^ 1);
+        addPieceMoves(bits, list, color, enemies);
+        int king = bits.getKing(color);
+        if (king != -1) {
+            addMoves(list, king, getKingAttacks(king) & enemies);
+        }
+
+        // Pawns on the rank before the last which can move forward
+        int forward = color == WHITE ? 8 : -8;
+        long pawns = bits.getPieces(color, PAWN) & (color == WHITE ? RANK_7 : RANK_2);
+        while (pawns != 0) {
+            int from = Long.numberOfTrailingZeros(pawns);
+            pawns &= pawns - 1;
+            if (bits.isEmpty(from + forward)) {
+                list.add(Move.createPromotion(from, from + forward, QUEEN));
+            }
+        }
+        return filterLegal(bits, list);
+    }
+
+    /**
+     * Remove the moves which leave the player's own king in check from a list
+     * @param bits
+     * @param list
+     * @return The list
+     */
+    private static MoveList filterLegal(BitBoard bits, MoveList list) {
+        int size = 0;
+        for (int i = 0; i < list.size(); i++) {
+            int move = list.get(i);
+            if (isLegal(bits, move)) {
+                list.set(size++, move);
+            }
+        }
+        list.truncate(size);
+        return list;
+    }
+
+    /**
+     * Check if the player whose turn it is has any legal move. Evasions are tried first when
+     * in check, and generation stops at the first legal move found.
+     * @param bits
+     * @return True if there is a legal move and false otherwise
+     */
+    public static boolean hasLegalMoves(BitBoard bits) {
+        return hasLegalMoves(bits, new MoveList());
+    }
+
+    /**
+     * Check if the player whose turn it is has any legal move
+     * @param bits
+     * @param list A list to generate the moves in, existing moves are removed
+     * @return True if there is a legal move and false otherwise
+     */
+    public static boolean hasLegalMoves(BitBoard bits, MoveList list) {
+        int color = bits.getTurn();
+        int king = bits.getKing(color);
+        long own = bits.getOccupied(color);
+        list.clear();
+
+        // King moves
+        if (king != -1) {
+            addMoves(list, king, getKingAttacks(king) & ~own);
+            if (hasLegalMove(bits, list)) {
+                return true;
+            }
+        }
+
+        // Other pieces must capture the checker or block the check, and can't help against two
+        long checkers = bits.getCheckers();
+        if (Long.bitCount(checkers) > 1) {
+            return false;
+        }
+        long targets = ~own;
+        if (checkers != 0) {
+            targets = checkers | getBetween(king, Long.numberOfTrailingZeros(checkers));
+        }
+        list.clear();
+        addPieceMoves(bits, list, color, targets);
+        return hasLegalMove(bits, list);
+    }
+
+    /**
+     * Check if the player whose turn it is is check mate
+     * @param bits
+     * @return True if check mate and false otherwise
+     */
+    public static boolean isCheckMate(BitBoard bits) {
+        return bits.isCheck() && !hasLegalMoves(bits);
+    }
+
+    /**
+     * Check if the player whose turn it is is stale mate
+     * @param bits
+     * @return True if stale mate and false otherwise
+     */
+    public static boolean isStaleMate(BitBoard bits) {
+        return !bits.isCheck() && !hasLegalMoves(bits);
+    }
+
+    /**
+     * Check if the game is drawn by stale mate, the fifty move rule or insufficient material.
+     * Check mate wins even on the move which reaches the fifty move limit.
+     * @param bits
+     * @return True if drawn and false otherwise
+     */
+    public static boolean isDraw(BitBoard bits) {
+        if (!hasLegalMoves(bits)) {
+            return !bits.isCheck();
+        }
+        return bits.getHalfMoves() >= 100 || bits.isInsufficientMaterial();
+    }
+
+    /**
+     * Check if any move in a list is legal
+     * @param bits
+     * @param list
+     * @return True if a legal move was found and false otherwise
+     */
+    private static boolean hasLegalMove(BitBoard bits, MoveList list) {
+        for (int i = 0; i < list.size(); i++) {
+            if (isLegal(bits, list.get(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Generate all pseudo-legal moves for a bitboard. When in check only evasions are
+     * generated: king moves, and captures of or blocks against a single checker.
+     * @param bits
+     * @param list The list to fill, existing moves are removed
+     * @return The list
+     */
+    public static MoveList generatePseudoLegalMoves(BitBoard bits, MoveList list) {
+        list.clear();
+        int color = bits.getTurn();
+        int king = bits.getKing(color);
+        long targets = ~bits.getOccupied(color);
+        long checkers = bits.getCheckers();
+        if (checkers != 0) {
+            if (king != -1) {
+                addMoves(list, king, getKingAttacks(king) & targets);
+            }
+            if (Long.bitCount(checkers) == 1) {
+                addPieceMoves(bits, list, color,
+                        checkers | getBetween(king, Long.numberOfTrailingZeros(checkers)));
+            }
+            return list;
+        }
+        addPieceMoves(bits, list, color, targets);
+        if (king != -1) {
+            addMoves(list, king, getKingAttacks(king) & targets);
+            addCastlingMoves(bits, list, color, king);
+        }
+        return list;
+    }
+
+    /**
+     * Add moves for all pieces except the king
+     * @param bits
+     * @param list
+     * @param color
+     * @param targets Positions the pieces may move to
+     */
+    private static void addPieceMoves(BitBoard bits, MoveList list, int color, long targets) {
+        long occupied = bits.getOccupied();
+
+        addPawnMoves(bits, list, color, targets);
+
+        long pieces = bits.getPieces(color, KNIGHT);
+        while (pieces != 0) {
+            int from = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            addMoves(list, from, getKnightAttacks(from) & targets);
+        }
+        pieces = bits.getPieces(color, BISHOP) | bits.getPieces(color, QUEEN);
+        while (pieces != 0) {
+            int from = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            addMoves(list, from, getBishopAttacks(from, occupied) & targets);
+        }
+        pieces = bits.getPieces(color, ROOK) | bits.getPieces(color, QUEEN);
+        while (pieces != 0) {
+            int from = Long.numberOfTrailingZeros(pieces);
+            pieces &= pieces - 1;
+            addMoves(list, from, getRookAttacks(from, occupied) & targets);
+        }
+    }
+
+    /**
+     * Check if a pseudo-legal move leaves the player's own king out of check
+     * @param bits
+     * @param move
+     * @return True if the move is legal and false otherwise
+     */
+    public static boolean isLegal(BitBoard bits, int move) {
+        int color = bits.getTurn();
+        int from = Move.getFrom(move);
+        int to = Move.getTo(move);
+        int flag = Move.getFlag(move);
+        if (flag == Move.CASTLING) {
+            // Attacked positions are already checked when castling moves are generated
+            return true;
+        }
+        int king = bits.getKing(color);
+        if (king == -1) {
+            return true;
+        }
+        if (king == from) {
+            king = to;
+        }
+        long captured = 1L << to;
+        long occupied = (bits.getOccupied() & ~(1L << from)) | captured;
+        if (flag == Move.EN_PASSANT) {
+            captured = 1L << (color == WHITE ? to - 8 : to + 8);
+            occupied &= ~captured;
+        }
+        return (bits.getAttackers(king, color ^ 1, occupied) & ~captured) == 0;
+    }
+
+    /**
+     * Add pawn moves, including double moves, promotions and en passant
+     * @param bits
+     * @param list
+     * @param color
+     * @param targets Positions the pawns may move to or capture on
+     */
+    private static void addPawnMoves(BitBoard bits, MoveList list, int color, long targets) {
+        long enemies = bits.getOccupied(color ^ 1);
+        long occupied = bits.getOccupied();
+        int forward = color == WHITE ? 8 : -8;
+        int enPassant = bits.getEnPassant();
+        long pawns = bits.getPieces(color, PAWN);
+        while (pawns != 0) {
+            int from = Long.numberOfTrailingZeros(pawns);
+            pawns &= pawns - 1;
+            int rank = from >>> 3;
+            boolean initial = (color == WHITE && rank == 1) || (color == BLACK && rank == 6);
+            boolean promotion = (color == WHITE && rank == 6) || (color == BLACK && rank == 1);
+
+            int to = from + forward;
+            if (to >= 0 && to < 64 && (occupied & (1L << to)) == 0) {
+                if ((targets & (1L << to)) != 0) {
+                    addPawnMove(list, from, to, promotion);
+                }
+                int twice = to + forward;
+                if (initial && (occupied & (1L << twice)) == 0 && (targets & (1L << twice)) != 0) {
+                    list.add(Move.create(from, twice, Move.DOUBLE_PAWN));
+                }
+            }
+
+            long attacks = getPawnAttacks(color, from);
+            long captures = attacks & enemies & targets;
+            while (captures != 0) {
+                addPawnMove(list, from, Long.numberOfTrailingZeros(captures), promotion);
+                captures &= captures - 1;
+            }
+            // The captured pawn may be the checker, so en passant isn't limited by targets
+            if (enPassant != UNDEFINED && (attacks & (1L << enPassant)) != 0) {
+                list.add(Move.create(from, enPassant, Move.EN_PASSANT));
+            }
+        }
+    }
+
+    /**
+     * Add a single pawn move, or all four promotions if the pawn reaches the last rank
+     * @param list
+     * @param from
+     * @param to
+     * @param promotion
+     */
+    private static void addPawnMove(MoveList list, int from, int to, boolean promotion) {
+        if (promotion) {
+            list.add(Move.createPromotion(from, to, QUEEN));
+            list.add(Move.createPromotion(from, to, ROOK));
+            list.add(Move.createPromotion(from, to, BISHOP));
+            list.add(Move.createPromotion(from, to, KNIGHT));
+        } else {
+            list.add(Move.create(from, to, Move.NORMAL));
+        }
+    }
+
+    /**
+     * Add castling moves. The king can't castle out of, through or into check.
+     * @param bits
+     * @param list
+     * @param color
+     * @param king
+     */
+    private static void addCastlingMoves(BitBoard bits, MoveList list, int color, int king) {
+        long occupied = bits.getOccupied();
+        int opponent = color ^ 1;
+        if (color == WHITE) {
+            if (king != 4 || bits.isAttacked(4, opponent)) {
+                return;
+            }
+            if (bits.hasCastling(WHITE_KINGSIDE) && (occupied & WHITE_KINGSIDE_PATH) == 0
+                    && !bits.isAttacked(5, opponent) && !bits.isAttacked(6, opponent)) {
+                list.add(Move.create(4, 6, Move.CASTLING));
+            }
+            if (bits.hasCastling(WHITE_QUEENSIDE) && (occupied & WHITE_QUEENSIDE_PATH) == 0
+                    && !bits.isAttacked(3, opponent) && !bits.isAttacked(2, opponent)) {
+                list.add(Move.create(4, 2, Move.CASTLING));
+            }
+        } else {
+            if (king != 60 || bits.isAttacked(60, opponent)) {
+                return;
+            }
+            if (bits.hasCastling(BLACK_KINGSIDE) && (occupied & BLACK_KINGSIDE_PATH) == 0
+                    && !bits.isAttacked(61, opponent) && !bits.isAttacked(62, opponent)) {
+                list.add(Move.create(60, 62, Move.CASTLING));
+            }
+            if (bits.hasCastling(BLACK_QUEENSIDE) && (occupied & BLACK_QUEENSIDE_PATH) == 0
+                    && !bits.isAttacked(59, opponent) && !bits.isAttacked(58, opponent)) {
+                list.add(Move.create(60, 58, Move.CASTLING));
+            }
+        }
+    }
+
+    /**
+     * Add a regular move to each target position
+     * @param list
+     * @param from
+     * @param targets
+     */
+    private static void addMoves(MoveList list, int from, long targets) {
+        while (targets != 0) {
+            list.add(Move.create(from, Long.numberOfTrailingZeros(targets), Move.NORMAL));
+            targets &= targets - 1;
+        }
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * MoveList.java
+ *
+ */
+
+package no.hist.aitel.chess.board;
+
+/**
+ * A reusable list of moves encoded as described in Move. No chess position has more than 218
+ * legal moves, so the list never grows.
+ * @author martin
+ */
+
+public class MoveList {
+
+    /**
+     * Max number of moves in a list
+     */
+    public static final int SIZE = 256;
+
+    private int[] moves = new int[SIZE];
+    private int size = 0;
+
+    /**
+     * Remove all moves from the list
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Add a move to the list
+     * @param move
+     */
+    public void add(int move) {
+        moves[size++] = move;
+    }
+
+    /**
+     * Get a move
+     * @param index
+     * @return The move
+     */
+    public int get(int index) {
+        return moves[index];
+    }
+
+    /**
+     * Replace a move
+     * @param index
+     * @param move
+     */
+    public void set(int index, int move) {
+        moves[index] = move;
+    }
+
+    /**
+     * Remove all moves after the given number of moves
+     * @param size
+     */
+    public void truncate(int size) {
+        this.size = size;
+    }
+
+    /**
+     * Get number of moves in the list
+     * @return The number of moves
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Check if the list contains a move
+     * @param move
+     * @return True if the move is in the list and false otherwise
+     */
+    public boolean contains(int move) {
+        for (int i = 0; i < size; i++) {
+            if (moves[i] == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get a string representation of the list
+     * @return The moves in coordinate notation separated by spaces
+     */
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                out.append(' ');
+            }
+            out.append(Move.toString(moves[i]));
+        }
+        return out.toString();
+    }
+
+}
@@ -0,0 +1,237 @@
+/*
+ * Perft.java
+ *
+ */
+
+package no.hist.aitel.chess.board;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Counts the leaf nodes of the legal move tree to a given depth (perft). The counts for well
+ * known positions are published, so comparing against them verifies the move generator and
+ * make/unmake, and timing them measures how fast they are.
+ * @author martin
+ */
+
+public class Perft {
+
+    /**
+     * Bundled suite of positions with known node counts, one EPD line per position
+     */
+    public static final String SUITE = "/no/hist/aitel/chess/resources/perft.epd";
+
+    private BitBoard bits;
+    private MoveList[] lists = new MoveList[0];
+
+    /**
+     * Creates a perft counter for the current position of a board
+     * @param board
+     */
+    public Perft(Board board) {
+        this(board.getBitBoard());
+    }
+
+    /**
+     * Creates a perft counter for a bitboard. Moves are made and taken back in place, so the
+     * bitboard is unchanged when counting is done.
+     * @param bits
+     */
+    public Perft(BitBoard bits) {
+        this.bits = bits;
+    }
+
+    /**
+     * Count leaf nodes
+     * @param depth
+     * @return The number of nodes
+     */
+    public long perft(int depth) {
+        if (depth < 1) {
+            return 1;
+        }
+        ensureLists(depth);
+        return count(depth);
+    }
+
+    /**
+     * Count leaf nodes below each legal move
+     * @param depth
+     * @return One line per move with its node count, followed by the total
+     */
+    public String divide(int depth) {
+        if (depth < 1) {
+            return "Nodes searched: 1";
+        }
+        ensureLists(depth);
+        MoveList list = MoveGenerator.generateLegalMoves(bits, new MoveList());
+        StringBuilder out = new StringBuilder();
+        long total = 0;
+        for (int i = 0; i < list.size(); i++) {
+            int move = list.get(i);
+            bits.makeMove(move);
+            long nodes = depth == 1 ? 1 : count(depth - 1);
+            bits.unmakeMove();
+            total += nodes;
+            out.append(Move.toString(move)).append(": ").append(nodes).append('\n');
+        }
+        out.append("\nNodes searched: ").append(total);
+        return out.toString();
+    }
+
+    /**
+     * Count leaf nodes, counting the moves at depth 1 instead of making them
+     * @param depth
+     * @return The number of nodes
+     */
+    private long count(int depth) {
+        MoveList list = MoveGenerator.generateLegalMoves(bits, lists[depth]);
+        if (depth == 1) {
+            return list.size();
+        }
+        long nodes = 0;
+        for (int i = 0; i < list.size(); i++) {
+            bits.makeMove(list.get(i));
+            nodes += count(depth - 1);
+            bits.unmakeMove();
+        }
+        return nodes;
+    }
+
+    /**
+     * Make sure there is one move list for each depth
+     * @param depth
+     */
+    private void ensureLists(int depth) {
+        if (lists.length <= depth) {
+            lists = new MoveList[depth + 1];
+            for (int i = 0; i < lists.length; i++) {
+                lists[i] = new MoveList();
+            }
+        }
+    }
+
+    /**
+     * Load the bundled suite
+     * @return The EPD lines of the suite
+     * @throws IOException
+     */
+    public static List<String> loadSuite() throws IOException {
+        InputStream in = Perft.class.getResourceAsStream(SUITE);
+        if (in == null) {
+            throw new IOException("Missing perft suite: " + SUITE);
+        }
+        List<String> suite = new ArrayList<String>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().length() > 0) {
+                    suite.add(line.trim());
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return suite;
+    }
+
+    /**
+     * Get the FEN part of a suite line
+     * @param line
+     * @return The FEN
+     */
+    public static String getFen(String line) {
+        int end = line.indexOf(';');
+        return (end == -1 ? line : line.substring(0, end)).trim();
+    }
+
+    /**
+     * Get the expected node count for a depth from a suite line
+     * @param line
+     * @param depth
+     * @return The count or -1 if the line has no count for the depth
+     */
+    public static long getExpected(String line, int depth) {
+        String key = ";D" + depth + " ";
+        int start = line.indexOf(key);
+        if (start == -1) {
+            return -1;
+        }
+        start += key.length();
+        int end = line.indexOf(';', start);
+        return Long.parseLong((end == -1 ? line.substring(start) : line.substring(start, end)).trim());
+    }
+
+    /**
+     * Run the bundled suite, or divide a single position.
+     * Usage: Perft [max depth] or Perft divide depth [fen]
+     * @param args
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("divide")) {
+            int depth = Integer.parseInt(args[1]);
+            BitBoard bits;
+            if (args.length > 2) {
+                StringBuilder fen = new StringBuilder();
+                for (int i = 2; i < args.length; i++) {
+                    fen.append(args[i]).append(' ');
+                }
+                bits = new BitBoard(fen.toString().trim());
+            } else {
+                bits = new Board().getBitBoard();
+            }
+            System.out.println(new Perft(bits).divide(depth));
+            return;
+        }
+
+        int maxDepth = args.length > 0 ? Integer.parseInt(args[0]) : Integer.MAX_VALUE;
+        long totalNodes = 0, totalTime = 0;
+        int failed = 0;
+        List<String> suite = loadSuite();
+        for (int i = 0; i < suite.size(); i++) {
+            String line = suite.get(i);
+            Perft perft = new Perft(new BitBoard(getFen(line)));
+            for (int depth = 1; depth <= maxDepth; depth++) {
+                long expected = getExpected(line, depth);
+                if (expected == -1) {
+                    break;
+                }
+                long start = System.nanoTime();
+                long nodes = perft.perft(depth);
+                long time = System.nanoTime() - start;
+                totalNodes += nodes;
+                totalTime += time;
+                if (nodes != expected) {
+                    failed++;
+                }
+                System.out.println("Position " + (i + 1) + " depth " + depth + ": " + nodes +
+                        (nodes == expected ? " OK" : " FAILED (expected " + expected + ")") +
+                        " " + getNodesPerSecond(nodes, time) + " nps");
+            }
+        }
+        System.out.println("\nNodes: " + totalNodes + "\nTime: " + (totalTime / 1000000) +
+                " ms\nNodes per second: " + getNodesPerSecond(totalNodes, totalTime) +
+                "\nFailed: " + failed);
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Get nodes per second
+     * @param nodes
+     * @param nanos
+     * @return The number of nodes per second
+     */
+    private static long getNodesPerSecond(long nodes, long nanos) {
+        return nanos == 0 ? 0 : nodes * 1000000000L / nanos;
+    }
+
+}
@@ -0,0 +1,189 @@
+/*
+ * PieceSquareTables.java
+ *
+ */
+
+package no.hist.aitel.chess.board;
+
+import static no.hist.aitel.chess.piece.PieceConstants.*;
+
+/**
+ * Material and piece-square values used for evaluation, for the middlegame and the endgame.
+ * The values include the material of the piece and are positive for white and negative for
+ * black, so the score of a position is the sum over its pieces. BitBoard keeps that sum up to
+ * date as pieces are placed and removed.
+ * @author martin
+ */
+
+public class PieceSquareTables {
+
+    /**
+     * Phase of a position with all pieces on the board
+     */
+    public static final int MAX_PHASE = 24;
+
+    /**
+     * Material values indexed by type
+     */
+    private static final int[] MIDDLEGAME_VALUES = {100, 330, 320, 500, 900, 0};
+    private static final int[] ENDGAME_VALUES = {120, 320, 300, 520, 950, 0};
+
+    /**
+     * How much each type counts towards the phase, indexed by type
+     */
+    private static final int[] PHASES = {0, 1, 1, 2, 4, 0};
+
+    /**
+     * Tables for white as seen from white's side of the board, rank 8 first
+     */
+    private static final int[] PAWN_MIDDLEGAME = {
+          0,   0,   0,   0,   0,   0,   0,   0,
+         50,  50,  50,  50,  50,  50,  50,  50,
+         10,  10,  20,  30,  30,  20,  10,  10,
+          5,   5,  10,  25,  25,  10,   5,   5,
+          0,   0,   0,  20,  20,   0,   0,   0,
+          5,  -5, -10,   0,   0, -10,  -5,   5,
+          5,  10,  10, -20, -20,  10,  10,   5,
+          0,   0,   0,   0,   0,   0,   0,   0
+    };
+    private static final int[] PAWN_ENDGAME = {
+          0,   0,   0,   0,   0,   0,   0,   0,
+         80,  80,  80,  80,  80,  80,  80,  80,
+         50,  50,  50,  50,  50,  50,  50,  50,
+         30,  30,  30,  30,  30,  30,  30,  30,
+         20,  20,  20,  20,  20,  20,  20,  20,
+         10,  10,  10,  10,  10,  10,  10,  10,
+          0,   0,   0,   0,   0,   0,   0,   0,
+          0,   0,   0,   0,   0,   0,   0,   0
+    };
+    private static final int[] BISHOP_TABLE = {
+        -20, -10, -10, -10, -10, -10, -10, -20,
+        -10,   0,   0,   0,   0,   0,   0, -10,
+        -10,   0,   5,  10,  10,   5,   0, -10,
+        -10,   5,   5,  10,  10,   5,   5, -10,
+        -10,   0,  10,  10,  10,  10,   0, -10,
+        -10,  10,  10,  10,  10,  10,  10, -10,
+        -10,   5,   0,   0,   0,   0,   5, -10,
+        -20, -10, -10, -10, -10, -10, -10, -20
+    };
+    private static final int[] KNIGHT_TABLE = {
+        -50, -40, -30, -30, -30, -30, -40, -50,
+        -40, -20,   0,   0,   0,   0, -20, -40,
+        -30,   0,  10,  15,  15,  10,   0, -30,
+        -30,   5,  15,  20,  20,  15,   5, -30,
+        -30,   0,  15,  20,  20,  15,   0, -30,
+        -30,   5,  10,  15,  15,  10,   5, -30,
+        -40, -20,   0,   5,   5,   0, -20, -40,
+        -50, -40, -30, -30, -30, -30, -40, -50
+    };
+    private static final int[] ROOK_TABLE = {
+          0,   0,   0,   0,   0,   0,   0,   0,
+          5,  10,  10,  10,  10,  10,  10,   5,
+         -5,   0,   0,   0,   0,   0,   0,  -5,
+         -5,   0,   0,   0,   0,   0,   0,  -5,
+         -5,   0,   0,   0,   0,   0,   0,  -5,
+         -5,   0,   0,   0,   0,   0,   0,  -5,
+         -5,   0,   0,   0,   0,   0,   0,  -5,
+          0,   0,   0,   5,   5,   0,   0,   0
+    };
+    private static final int[] QUEEN_TABLE = {
+        -20, -10, -10,  -5,  -5, -10, -10, -20,
+        -10,   0,   0,   0,   0,   0,   0, -10,
+        -10,   0,   5,   5,   5,   5,   0, -10,
+         -5,   0,   5,   5,   5,   5,   0,  -5,
+          0,   0,   5,   5,   5,   5,   0,  -5,
+        -10,   5,   5,   5,   5,   5,   0, -10,
+        -10,   0,   5,   0,   0,   0,   0, -10,
+        -20, -10, -10,  -5,  -5, -10, -10, -20
+    };
+    private static final int[] KING_MIDDLEGAME = {
+        -30, -40, -40, -50, -50, -40, -40, -30,
+        -30, -40, -40, -50, -50, -40, -40, -30,
+        -30, -40, -40, -50, -50, -40, -40, -30,
+        -30, -40, -40, -50, -50, -40, -40, -30,
+        -20, -30, -30, -40, -40, -30, -30, -20,
+        -10, -20, -20, -20, -20, -20, -20, -10,
+         20,  20,   0,   0,   0,   0,  20,  20,
+         20,  30,  10,   0,   0,  10,  30,  20
+    };
+    private static final int[] KING_ENDGAME = {
+        -50, -40, -30, -20, -20, -30, -40, -50,
+        -30, -20, -10,   0,   0, -10, -20, -30,
+        -30, -10,  20,  30,  30,  20, -10, -30,
+        -30, -10,  30,  40,  40,  30, -10, -30,
+        -30, -10,  30,  40,  40,  30, -10, -30,
+        -30, -10,  20,  30,  30,  20, -10, -30,
+        -30, -30,   0,   0,   0,   0, -30, -30,
+        -50, -30, -30, -30, -30, -30, -30, -50
+    };
+
+    /**
+     * Values indexed by piece set index and position
+     */
+    private static final int[][] MIDDLEGAME = new int[12][64];
+    private static final int[][] ENDGAME = new int[12][64];
+
+    static {
+        int[][] middlegame = {PAWN_MIDDLEGAME, BISHOP_TABLE, KNIGHT_TABLE, ROOK_TABLE,
+                QUEEN_TABLE, KING_MIDDLEGAME};
+        int[][] endgame = {PAWN_ENDGAME, BISHOP_TABLE, KNIGHT_TABLE, ROOK_TABLE,
+                QUEEN_TABLE, KING_ENDGAME};
+        for (int type = PAWN; type <= KING; type++) {
+            int white = BitBoard.getIndex(WHITE, type);
+            int black = BitBoard.getIndex(BLACK, type);
+            for (int position = 0; position < 64; position++) {
+                // The tables start at rank 8, and black sees them from the other side
+                MIDDLEGAME[white][position] = MIDDLEGAME_VALUES[type]
+                        + middlegame[type][position ^ 56];
+                ENDGAME[white][position] = ENDGAME_VALUES[type] + endgame[type][position ^ 56];
+                MIDDLEGAME[black][position] = -MIDDLEGAME_VALUES[type]
+                        - middlegame[type][position];
+                ENDGAME[black][position] = -ENDGAME_VALUES[type] - endgame[type][position];
+            }
+        }
+    }
+
+    // Don't allow instances of this class
+    private PieceSquareTables() {
+    }
+
+    /**
+     * Get the middlegame value of a piece on a position
+     * @param index Piece set index
+     * @param position
+     * @return The value, positive for white and negative for black
+     */
+    public static int getMiddlegame(int index, int position) {
+        return MIDDLEGAME[index][position];
+    }
+
+    /**
+     * Get the endgame value of a piece on a position
+     * @param index Piece set index
+     * @param position
+     * @return The value, positive for white and negative for black
+     */
+    public static int getEndgame(int index, int position) {
+        return ENDGAME[index][position];
+    }
+
+    /**
+     * Get the material value of a type, the middlegame value without the position. This is
+     * the one table of piece values, used wherever pieces are compared without a position.
+     * @param type
+     * @return The value, 0 for the king
+     */
+    public static int getValue(int type) {
+        return MIDDLEGAME_VALUES[type];
+    }
+
+    /**
+     * Get how much a piece counts towards the phase of a position
+     * @param index Piece set index
+     * @return The phase, MAX_PHASE for all pieces together at the start of a game
+     */
+    public static int getPhase(int index) {
+        return PHASES[index % 6];
+    }
+
+}
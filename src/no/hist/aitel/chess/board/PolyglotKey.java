@@ -0,0 +1,164 @@
+/*
+ * PolyglotKey.java
+ *
+ */
+
+package no.hist.aitel.chess.board;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import static no.hist.aitel.chess.board.Attacks.*;
+import static no.hist.aitel.chess.piece.PieceConstants.*;
+
+/**
+ * Position keys in the Polyglot opening book format. Like Zobrist, a key is the XOR of random
+ * numbers for the pieces, castling rights, en passant file and side to move, but the numbers
+ * and their layout are the 781 ones of the Polyglot format so keys match those in the books.
+ * The layout differs from Zobrist: piece kinds alternate black and white (black pawn, white
+ * pawn, black knight, ...), the side number is used when white is to move, and the en passant
+ * file only counts if a pawn of the player to move can capture.
+ * The numbers are read from a text file, so they aren't computed differently here.
+ * @author martin
+ */
+
+public class PolyglotKey {
+
+    /**
+     * The random numbers of the Polyglot format, 781 hexadecimal numbers in order, as in the
+     * Random64 array of the format description
+     */
+    public static final String RANDOMS = "/no/hist/aitel/chess/resources/polyglot_random64.txt";
+
+    /**
+     * Number of random numbers, and the offsets of each group in them
+     */
+    public static final int SIZE = 781;
+    private static final int CASTLING = 768;
+    private static final int EN_PASSANT = 772;
+    private static final int TURN = 780;
+
+    /**
+     * Polyglot piece kind for each type, before adding 1 for white
+     */
+    private static final int[] KINDS = new int[6];
+
+    static {
+        KINDS[PAWN] = 0;
+        KINDS[KNIGHT] = 2;
+        KINDS[BISHOP] = 4;
+        KINDS[ROOK] = 6;
+        KINDS[QUEEN] = 8;
+        KINDS[KING] = 10;
+    }
+
+    private long[] randoms;
+
+    /**
+     * Creates keys from random numbers
+     * @param randoms The 781 numbers in the Polyglot layout
+     */
+    public PolyglotKey(long[] randoms) {
+        if (randoms.length != SIZE) {
+            throw new IllegalArgumentException("Expected " + SIZE + " random numbers, got "
+                    + randoms.length);
+        }
+        this.randoms = randoms.clone();
+    }
+
+    /**
+     * Load the bundled Polyglot random numbers
+     * @return The keys
+     * @throws IOException If the numbers are missing or not valid
+     */
+    public static PolyglotKey load() throws IOException {
+        InputStream in = PolyglotKey.class.getResourceAsStream(RANDOMS);
+        if (in == null) {
+            throw new IOException("Missing Polyglot random numbers: " + RANDOMS);
+        }
+        return load(in);
+    }
+
+    /**
+     * Load Polyglot random numbers from a stream and close it. The numbers are written in
+     * hexadecimal and may have a 0x prefix and a U or ULL suffix, so a C array can be used as
+     * it is. Anything else between them, like commas and comments, is skipped.
+     * @param in
+     * @return The keys
+     * @throws IOException If reading fails or the number of numbers is wrong
+     */
+    public static PolyglotKey load(InputStream in) throws IOException {
+        long[] randoms = new long[SIZE];
+        int count = 0;
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, "US-ASCII"));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] tokens = line.split("[^0-9A-Za-z]+");
+                for (int i = 0; i < tokens.length; i++) {
+                    String token = tokens[i];
+                    if (token.startsWith("0x") || token.startsWith("0X")) {
+                        token = token.substring(2);
+                    }
+                    token = token.replaceAll("[uUlL]+$", "");
+                    if (token.length() != 16 || !token.matches("[0-9A-Fa-f]+")) {
+                        continue;
+                    }
+                    if (count == SIZE) {
+                        throw new IOException("More than " + SIZE + " random numbers");
+                    }
+                    randoms[count++] = (Long.parseLong(token.substring(0, 8), 16) << 32)
+                            | Long.parseLong(token.substring(8), 16);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        if (count != SIZE) {
+            throw new IOException("Expected " + SIZE + " random numbers, found " + count);
+        }
+        return new PolyglotKey(randoms);
+    }
+
+    /**
+     * Get the Polyglot key of a position
+     * @param bits
+     * @return The key
+     */
+    public long getKey(BitBoard bits) {
+        long key = 0;
+        for (int color = WHITE; color <= BLACK; color++) {
+            for (int type = PAWN; type <= KING; type++) {
+                int offset = 64 * (KINDS[type] + (color == WHITE ? 1 : 0));
+                long pieces = bits.getPieces(color, type);
+                while (pieces != 0) {
+                    key ^= randoms[offset + Long.numberOfTrailingZeros(pieces)];
+                    pieces &= pieces - 1;
+                }
+            }
+        }
+        if (bits.hasCastling(BitBoard.WHITE_KINGSIDE)) {
+            key ^= randoms[CASTLING];
+        }
+        if (bits.hasCastling(BitBoard.WHITE_QUEENSIDE)) {
+            key ^= randoms[CASTLING + 1];
+        }
+        if (bits.hasCastling(BitBoard.BLACK_KINGSIDE)) {
+            key ^= randoms[CASTLING + 2];
+        }
+        if (bits.hasCastling(BitBoard.BLACK_QUEENSIDE)) {
+            key ^= randoms[CASTLING + 3];
+        }
+        int enPassant = bits.getEnPassant();
+        if (enPassant != UNDEFINED && (getPawnAttacks(bits.getTurn() ^ 1, enPassant)
+                & bits.getPieces(bits.getTurn(), PAWN)) != 0) {
+            key ^= randoms[EN_PASSANT + getFile(enPassant)];
+        }
+        if (bits.getTurn() == WHITE) {
+            key ^= randoms[TURN];
+        }
+        return key;
+    }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Zobrist.java
+ *
+ */
+
+package no.hist.aitel.chess.board;
+
+/**
+ * Random keys for Zobrist hashing. The hash of a position is the XOR of the key of each piece
+ * on its position, the keys of the castling rights, the key of the en passant file and the side
+ * key if black is to move, so a move only changes the keys of what it changes. The keys come
+ * from a fixed seed, so a hash is the same in every run and can be stored.
+ * @author martin
+ */
+
+public class Zobrist {
+
+    /**
+     * Keys for each piece set index and position
+     */
+    private static final long[][] PIECES = new long[12][64];
+
+    /**
+     * Keys for each combination of castling rights
+     */
+    private static final long[] CASTLING = new long[16];
+
+    /**
+     * Keys for each en passant file
+     */
+    private static final long[] EN_PASSANT = new long[8];
+
+    /**
+     * Key for black to move
+     */
+    private static final long SIDE;
+
+    static {
+        long seed = 0x5DEECE66DL;
+        for (int index = 0; index < PIECES.length; index++) {
+            for (int position = 0; position < 64; position++) {
+                seed += 0x9E3779B97F4A7C15L;
+                PIECES[index][position] = mix(seed);
+            }
+        }
+        // Each right has its own key, and combinations are the XOR of their rights
+        long[] rights = new long[4];
+        for (int i = 0; i < rights.length; i++) {
+            seed += 0x9E3779B97F4A7C15L;
+            rights[i] = mix(seed);
+        }
+        for (int castling = 0; castling < CASTLING.length; castling++) {
+            for (int i = 0; i < rights.length; i++) {
+                if ((castling & (1 << i)) != 0) {
+                    CASTLING[castling] ^= rights[i];
+                }
+            }
+        }
+        for (int file = 0; file < EN_PASSANT.length; file++) {
+            seed += 0x9E3779B97F4A7C15L;
+            EN_PASSANT[file] = mix(seed);
+        }
+        seed += 0x9E3779B97F4A7C15L;
+        SIDE = mix(seed);
+    }
+
+    // Don't allow instances of this class
+    private Zobrist() {
+    }
+
+    /**
+     * Scramble the bits of a counter (the SplitMix64 finalizer)
+     * @param z
+     * @return The scrambled value
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Get the key of a piece on a position
+     * @param index Piece set index
+     * @param position
+     * @return The key
+     */
+    public static long getPiece(int index, int position) {
+        return PIECES[index][position];
+    }
+
+    /**
+     * Get the key of a combination of castling rights
+     * @param castling
+     * @return The key
+     */
+    public static long getCastling(int castling) {
+        return CASTLING[castling];
+    }
+
+    /**
+     * Get the key of an en passant position
+     * @param position The en passant position, or UNDEFINED
+     * @return The key of the position's file, or 0 if there is no en passant position
+     */
+    public static long getEnPassant(int position) {
+        return position < 0 ? 0 : EN_PASSANT[position & 7];
+    }
+
+    /**
+     * Get the key for black to move
+     * @return The key
+     */
+    public static long getSide() {
+        return SIDE;
+    }
+
+}
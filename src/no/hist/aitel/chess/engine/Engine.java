@@ -0,0 +1,234 @@
+/*
+ * Engine.java
+ *
+ */
+
+package no.hist.aitel.chess.engine;
+
+import no.hist.aitel.chess.board.BitBoard;
+import no.hist.aitel.chess.board.Board;
+import no.hist.aitel.chess.board.Move;
+
+/**
+ * Computer opponent which finds the best move for the player whose turn it is. The board
+ * searched is never changed, play the move with Board.movePiece().
+ * With more than one thread the search is Lazy SMP: helper threads search the same position
+ * on their own copies, half of them one ply deeper, and share their results through the
+ * transposition table. The main thread's result is the one returned.
+ * With an opening book, positions found in it are answered from it without searching.
+ * @author martin
+ */
+
+public class Engine {
+
+    /**
+     * Default size of the transposition table in megabytes
+     */
+    public static final int DEFAULT_HASH_SIZE = 16;
+
+    private TranspositionTable table = new TranspositionTable(DEFAULT_HASH_SIZE);
+
+    /**
+     * Number of threads searching
+     */
+    private int threads = 1;
+
+    /**
+     * The searches running or last run, the main search first
+     */
+    private volatile Search[] searches = new Search[0];
+
+    private OpeningBook book;
+
+    /**
+     * Told about each completed iteration of the main search, or null
+     */
+    private SearchListener listener = null;
+
+    /**
+     * Find the best move on a board
+     * @param board
+     * @param limits
+     * @return The move (see Move), or Move.NONE if there are no legal moves
+     */
+    public int bestMove(Board board, SearchLimits limits) {
+        return bestMove(board.getBitBoard(), limits);
+    }
+
+    /**
+     * Find the best move on a bitboard
+     * @param bits
+     * @param limits
+     * @return The move (see Move), or Move.NONE if there are no legal moves
+     */
+    public int bestMove(BitBoard bits, SearchLimits limits) {
+        if (book != null) {
+            int move = book.getMove(bits);
+            if (move != Move.NONE) {
+                searches = new Search[0];
+                return move;
+            }
+        }
+        Search[] current = new Search[threads];
+        for (int i = 0; i < current.length; i++) {
+            current[i] = new Search(bits, table, i % 2);
+        }
+        current[0].setListener(listener);
+        searches = current;
+
+        Thread[] helpers = new Thread[current.length - 1];
+        for (int i = 0; i < helpers.length; i++) {
+            helpers[i] = new Helper(current[i + 1], limits);
+            helpers[i].start();
+        }
+        int move = current[0].search(limits);
+        for (int i = 0; i < helpers.length; i++) {
+            current[i + 1].stop();
+        }
+        for (int i = 0; i < helpers.length; i++) {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    helpers[i].join();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return move;
+    }
+
+    /**
+     * Set the opening book to play from
+     * @param book The book, or null to always search
+     */
+    public void setBook(OpeningBook book) {
+        this.book = book;
+    }
+
+    /**
+     * Get the opening book played from
+     * @return The book, or null if there is none
+     */
+    public OpeningBook getBook() {
+        return book;
+    }
+
+    /**
+     * Set the listener told about each completed iteration of the main search
+     * @param listener The listener, or null
+     */
+    public void setListener(SearchListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Set the number of threads searching
+     * @param threads
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Invalid number of threads: " + threads);
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Get the number of threads searching
+     * @return The number of threads
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Change the size of the transposition table, removing all stored results
+     * @param megabytes
+     */
+    public void setHashSize(int megabytes) {
+        table.resize(megabytes);
+    }
+
+    /**
+     * Remove all stored results, for example when a new game starts
+     */
+    public void clearHash() {
+        table.clear();
+    }
+
+    /**
+     * Stop the running search, which then returns the best move found so far
+     */
+    public void stop() {
+        Search[] current = searches;
+        for (int i = 0; i < current.length; i++) {
+            current[i].stop();
+        }
+    }
+
+    /**
+     * Get the score of the last search
+     * @return The score in centipawns for the player to move, see EngineConstants for mates
+     */
+    public int getScore() {
+        Search[] current = searches;
+        return current.length == 0 ? 0 : current[0].getScore();
+    }
+
+    /**
+     * Get the depth reached by the last search
+     * @return The depth in plies
+     */
+    public int getDepth() {
+        Search[] current = searches;
+        return current.length == 0 ? 0 : current[0].getDepth();
+    }
+
+    /**
+     * Get the number of nodes searched by the last search, by all threads
+     * @return The number of nodes
+     */
+    public long getNodes() {
+        Search[] current = searches;
+        long nodes = 0;
+        for (int i = 0; i < current.length; i++) {
+            nodes += current[i].getNodes();
+        }
+        return nodes;
+    }
+
+    /**
+     * Get the best move of the last search
+     * @return The move, or Move.NONE if no search has been run
+     */
+    public int getBestMove() {
+        Search[] current = searches;
+        return current.length == 0 ? Move.NONE : current[0].getBestMove();
+    }
+
+    /**
+     * Thread running a helper search, its result is only used through the table
+     */
+    private static class Helper extends Thread {
+
+        private Search search;
+        private SearchLimits limits;
+
+        public Helper(Search search, SearchLimits limits) {
+            super("Search helper");
+            this.search = search;
+            this.limits = limits;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            search.search(limits);
+        }
+    }
+
+}
@@ -0,0 +1,44 @@
+/*
+ * EngineConstants.java
+ *
+ */
+
+package no.hist.aitel.chess.engine;
+
+/**
+ * Constants for scores and limits used by the search
+ * @author martin
+ */
+
+public class EngineConstants {
+
+    // Don't allow instances of this class
+    private EngineConstants() {
+    }
+
+    /**
+     * Max number of plies searched from the root
+     */
+    public static final int MAX_PLY = 128;
+
+    /**
+     * Score larger than any real score, used as the initial search window
+     */
+    public static final int INFINITE = 32001;
+
+    /**
+     * Score for mate at the root, mate in n plies scores MATE - n
+     */
+    public static final int MATE = 32000;
+
+    /**
+     * Scores at least this far from zero are mate scores
+     */
+    public static final int MATE_BOUND = MATE - MAX_PLY;
+
+    /**
+     * Score of a drawn position
+     */
+    public static final int DRAW = 0;
+
+}
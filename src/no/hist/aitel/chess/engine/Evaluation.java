@@ -0,0 +1,60 @@
+/*
+ * Evaluation.java
+ *
+ */
+
+package no.hist.aitel.chess.engine;
+
+import no.hist.aitel.chess.board.BitBoard;
+import no.hist.aitel.chess.board.PieceSquareTables;
+import static no.hist.aitel.chess.piece.PieceConstants.*;
+
+/**
+ * Static evaluation of positions, in centipawns from the view of the player to move. Material
+ * and piece-square values are kept up to date by BitBoard as moves are made, so evaluating
+ * costs the same however many pieces are left. The middlegame and endgame scores are blended
+ * by the phase of the position.
+ * @author martin
+ */
+
+public class Evaluation {
+
+    // Don't allow instances of this class
+    private Evaluation() {
+    }
+
+    /**
+     * Evaluate a position
+     * @param bits
+     * @return The score for the player whose turn it is
+     */
+    public static int evaluate(BitBoard bits) {
+        return evaluate(bits, PawnTable.evaluate(bits));
+    }
+
+    /**
+     * Evaluate a position, looking up the pawn structure in a cache
+     * @param bits
+     * @param pawns
+     * @return The score for the player whose turn it is
+     */
+    public static int evaluate(BitBoard bits, PawnTable pawns) {
+        return evaluate(bits, pawns.probe(bits));
+    }
+
+    /**
+     * Evaluate a position
+     * @param bits
+     * @param pawns Packed pawn structure score, see PawnTable
+     * @return The score for the player whose turn it is
+     */
+    private static int evaluate(BitBoard bits, int pawns) {
+        int middlegame = bits.getMiddlegame() + PawnTable.getMiddlegame(pawns);
+        int endgame = bits.getEndgame() + PawnTable.getEndgame(pawns);
+        int phase = Math.min(bits.getPhase(), PieceSquareTables.MAX_PHASE);
+        int score = (middlegame * phase + endgame * (PieceSquareTables.MAX_PHASE - phase))
+                / PieceSquareTables.MAX_PHASE;
+        return bits.getTurn() == WHITE ? score : -score;
+    }
+
+}
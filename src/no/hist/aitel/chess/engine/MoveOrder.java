@@ -0,0 +1,167 @@
+/*
+ * MoveOrder.java
+ *
+ */
+
+package no.hist.aitel.chess.engine;
+
+import no.hist.aitel.chess.board.BitBoard;
+import no.hist.aitel.chess.board.Move;
+import no.hist.aitel.chess.board.MoveList;
+import static no.hist.aitel.chess.engine.EngineConstants.*;
+import static no.hist.aitel.chess.piece.PieceConstants.*;
+
+/**
+ * Orders moves so the ones most likely to cause a cutoff are searched first: the move from the
+ * transposition table, captures by most valuable victim and least valuable attacker
+ * (MVV-LVA), the killer moves which caused cutoffs at the same ply, and the remaining quiet
+ * moves by how often they caused cutoffs anywhere (history, indexed by color and from and to
+ * position). Scores are kept in an int buffer per ply and the next move is picked by
+ * selection, so ordering allocates nothing and stops early when a cutoff comes quickly.
+ * Each search thread has its own instance.
+ * @author martin
+ */
+
+public class MoveOrder {
+
+    /**
+     * Score bands, each above every score of the band below
+     */
+    private static final int HASH_MOVE = 1 << 30;
+    private static final int CAPTURE = 1 << 28;
+    private static final int KILLER = 1 << 27;
+
+    /**
+     * History scores are halved when one reaches this limit, so they stay below KILLER
+     */
+    private static final int HISTORY_LIMIT = 1 << 20;
+
+    /**
+     * Rank of each type as a victim or attacker, indexed by type
+     */
+    private static final int[] RANKS = {1, 3, 2, 4, 5, 6};
+
+    private int[][] scores = new int[MAX_PLY + 1][MoveList.SIZE];
+    private int[][] killers = new int[MAX_PLY + 1][2];
+    private int[][][] history = new int[2][64][64];
+
+    /**
+     * Prepare for a new search. Killers belong to positions of the last search and are
+     * removed, history is kept but counts for less.
+     */
+    public void clear() {
+        for (int ply = 0; ply < killers.length; ply++) {
+            killers[ply][0] = Move.NONE;
+            killers[ply][1] = Move.NONE;
+        }
+        ageHistory();
+    }
+
+    /**
+     * Score the moves of a list
+     * @param bits The position the moves are for
+     * @param list
+     * @param ply Distance from the root, selects the score buffer and killers
+     * @param hashMove The move from the transposition table, or Move.NONE
+     */
+    public void score(BitBoard bits, MoveList list, int ply, int hashMove) {
+        int[] buffer = scores[ply];
+        int color = bits.getTurn();
+        for (int i = 0; i < list.size(); i++) {
+            int move = list.get(i);
+            int from = Move.getFrom(move);
+            int to = Move.getTo(move);
+            if (move == hashMove) {
+                buffer[i] = HASH_MOVE;
+            } else if (!isQuiet(bits, move)) {
+                int victim = Move.getFlag(move) == Move.EN_PASSANT ? PAWN : bits.getType(to);
+                int score = CAPTURE - RANKS[bits.getType(from)];
+                if (victim != UNDEFINED) {
+                    score += RANKS[victim] * 8;
+                }
+                if (Move.isPromotion(move)) {
+                    score += RANKS[Move.getPromotion(move)] * 8;
+                }
+                buffer[i] = score;
+            } else if (move == killers[ply][0]) {
+                buffer[i] = KILLER + 1;
+            } else if (move == killers[ply][1]) {
+                buffer[i] = KILLER;
+            } else {
+                buffer[i] = history[color][from][to];
+            }
+        }
+    }
+
+    /**
+     * Get the best scored move not searched yet, and move it to its place in the list
+     * @param list A list scored with score()
+     * @param ply
+     * @param index Number of moves searched
+     * @return The move to search next
+     */
+    public int next(MoveList list, int ply, int index) {
+        int[] buffer = scores[ply];
+        int best = index;
+        for (int i = index + 1; i < list.size(); i++) {
+            if (buffer[i] > buffer[best]) {
+                best = i;
+            }
+        }
+        int move = list.get(best);
+        if (best != index) {
+            int score = buffer[best];
+            list.set(best, list.get(index));
+            buffer[best] = buffer[index];
+            list.set(index, move);
+            buffer[index] = score;
+        }
+        return move;
+    }
+
+    /**
+     * Check if a move is quiet, neither capturing nor promoting
+     * @param bits The position before the move
+     * @param move
+     * @return True if quiet and false otherwise
+     */
+    public static boolean isQuiet(BitBoard bits, int move) {
+        return bits.isEmpty(Move.getTo(move)) && Move.getFlag(move) != Move.EN_PASSANT
+                && !Move.isPromotion(move);
+    }
+
+    /**
+     * Remember a quiet move which caused a cutoff
+     * @param color The color which made the move
+     * @param move
+     * @param depth Remaining depth where the cutoff happened, deeper cutoffs count more
+     * @param ply
+     */
+    public void addCutoff(int color, int move, int depth, int ply) {
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        int[] scores = history[color][Move.getFrom(move)];
+        int to = Move.getTo(move);
+        scores[to] += depth * depth;
+        if (scores[to] >= HISTORY_LIMIT) {
+            ageHistory();
+        }
+    }
+
+    /**
+     * Halve all history scores
+     */
+    private void ageHistory() {
+        for (int color = 0; color < history.length; color++) {
+            for (int from = 0; from < 64; from++) {
+                int[] scores = history[color][from];
+                for (int to = 0; to < 64; to++) {
+                    scores[to] >>= 1;
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,195 @@
+/*
+ * OpeningBook.java
+ *
+ */
+
+package no.hist.aitel.chess.engine;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Random;
+import no.hist.aitel.chess.board.BitBoard;
+import no.hist.aitel.chess.board.Move;
+import no.hist.aitel.chess.board.MoveGenerator;
+import no.hist.aitel.chess.board.MoveList;
+import no.hist.aitel.chess.board.PolyglotKey;
+import static no.hist.aitel.chess.piece.PieceConstants.*;
+
+/**
+ * Opening book in the Polyglot format. The file is a sorted array of 16 byte big endian
+ * entries: the position key, the move, its weight and 4 bytes of learning data which aren't
+ * used. The file is memory mapped and searched in place, so a book of any size costs a few
+ * page reads per probe and nothing on the heap. Probes may be made from several threads.
+ * @author martin
+ */
+
+public class OpeningBook {
+
+    private static final int ENTRY_SIZE = 16;
+
+    /**
+     * Type of each Polyglot promotion number
+     */
+    private static final int[] PROMOTIONS = {UNDEFINED, KNIGHT, BISHOP, ROOK, QUEEN};
+
+    private MappedByteBuffer buffer;
+    private int size;
+    private PolyglotKey keys;
+    private Random random = new Random();
+
+    /**
+     * Opens a book with the bundled Polyglot keys
+     * @param file
+     * @throws IOException
+     */
+    public OpeningBook(File file) throws IOException {
+        this(file, PolyglotKey.load());
+    }
+
+    /**
+     * Opens a book
+     * @param file
+     * @param keys The keys the book was made with
+     * @throws IOException
+     */
+    public OpeningBook(File file, PolyglotKey keys) throws IOException {
+        this.keys = keys;
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = in.getChannel();
+            long length = channel.size();
+            if (length % ENTRY_SIZE != 0 || length > Integer.MAX_VALUE) {
+                throw new IOException("Not a Polyglot book: " + file);
+            }
+            // The mapping stays valid after the file is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            size = (int) (length / ENTRY_SIZE);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Get the number of entries
+     * @return The number of entries
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Get the book moves of a position
+     * @param bits
+     * @param list The list to fill with the moves
+     * @param weights Filled with the weight of each move, as long as the list can be
+     * @return The list
+     */
+    public MoveList getMoves(BitBoard bits, MoveList list, int[] weights) {
+        list.clear();
+        long key = keys.getKey(bits);
+        MoveList legal = null;
+        for (int i = find(key); i < size && getKey(i) == key; i++) {
+            if (legal == null) {
+                legal = MoveGenerator.generateLegalMoves(bits, new MoveList());
+            }
+            int move = toMove(bits, legal, buffer.getShort(i * ENTRY_SIZE + 8) & 0xFFFF);
+            // Entries for illegal moves come from broken books or key collisions
+            if (move != Move.NONE && !list.contains(move)) {
+                weights[list.size()] = buffer.getShort(i * ENTRY_SIZE + 10) & 0xFFFF;
+                list.add(move);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Pick a book move at random, a move twice the weight of another twice as likely
+     * @param bits
+     * @return The move, or Move.NONE if the position isn't in the book
+     */
+    public int getMove(BitBoard bits) {
+        int[] weights = new int[MoveList.SIZE];
+        MoveList list = getMoves(bits, new MoveList(), weights);
+        int total = 0;
+        for (int i = 0; i < list.size(); i++) {
+            total += weights[i];
+        }
+        if (total == 0) {
+            // Moves of weight 0 are in the book but not to be played
+            return Move.NONE;
+        }
+        int pick;
+        synchronized (random) {
+            pick = random.nextInt(total);
+        }
+        for (int i = 0; i < list.size(); i++) {
+            pick -= weights[i];
+            if (pick < 0) {
+                return list.get(i);
+            }
+        }
+        return Move.NONE;
+    }
+
+    /**
+     * Find the first entry of a key by binary search
+     * @param key
+     * @return The index of the first entry with the key or a larger one
+     */
+    private int find(long key) {
+        int low = 0, high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            // The keys are sorted as unsigned numbers
+            if ((getKey(middle) ^ Long.MIN_VALUE) < (key ^ Long.MIN_VALUE)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Get the key of an entry
+     * @param index
+     * @return The key
+     */
+    private long getKey(int index) {
+        return buffer.getLong(index * ENTRY_SIZE);
+    }
+
+    /**
+     * Find the legal move for a Polyglot move
+     * @param bits
+     * @param legal The legal moves of the position
+     * @param raw Target file in bits 0-2, rank in 3-5, the same for the origin in 6-11 and
+     * the promotion in 12-14
+     * @return The move, or Move.NONE if it isn't legal
+     */
+    private static int toMove(BitBoard bits, MoveList legal, int raw) {
+        int to = raw & 0x3F;
+        int from = (raw >> 6) & 0x3F;
+        int promotion = (raw >> 12) & 0x7;
+        if (promotion >= PROMOTIONS.length) {
+            return Move.NONE;
+        }
+        // Castling is written as the king taking its own rook
+        if (bits.getType(from) == KING && bits.getColor(to) == bits.getColor(from)) {
+            to = to > from ? from + 2 : from - 2;
+        }
+        for (int i = 0; i < legal.size(); i++) {
+            int move = legal.get(i);
+            if (Move.getFrom(move) == from && Move.getTo(move) == to
+                    && (Move.isPromotion(move) ? Move.getPromotion(move) : UNDEFINED)
+                    == PROMOTIONS[promotion]) {
+                return move;
+            }
+        }
+        return Move.NONE;
+    }
+
+}
@@ -0,0 +1,182 @@
+/*
+ * PawnTable.java
+ *
+ */
+
+package no.hist.aitel.chess.engine;
+
+import no.hist.aitel.chess.board.BitBoard;
+import static no.hist.aitel.chess.board.Attacks.*;
+import static no.hist.aitel.chess.piece.PieceConstants.*;
+
+/**
+ * Evaluates the pawn structure (doubled, isolated and passed pawns) and caches the result by
+ * the pawn hash. The pawns rarely change between positions in a search, so most evaluations
+ * are found in the cache. Each search thread has its own table.
+ * @author martin
+ */
+
+public class PawnTable {
+
+    /**
+     * Default number of entries
+     */
+    public static final int DEFAULT_SIZE = 1 << 14;
+
+    /**
+     * Penalties for each doubled and isolated pawn, middlegame and endgame
+     */
+    private static final int DOUBLED_MIDDLEGAME = -10;
+    private static final int DOUBLED_ENDGAME = -20;
+    private static final int ISOLATED_MIDDLEGAME = -10;
+    private static final int ISOLATED_ENDGAME = -15;
+
+    /**
+     * Bonus for a passed pawn indexed by rank as seen by its own side, middlegame and endgame
+     */
+    private static final int[] PASSED_MIDDLEGAME = {0, 5, 10, 15, 25, 40, 60, 0};
+    private static final int[] PASSED_ENDGAME = {0, 10, 20, 35, 60, 90, 130, 0};
+
+    /**
+     * Files next to each file
+     */
+    private static final long[] ADJACENT_FILES = new long[8];
+
+    /**
+     * Positions in front of a pawn on its own and the adjacent files, indexed by color and
+     * position. The pawn is passed if no enemy pawn stands there.
+     */
+    private static final long[][] PASSED = new long[2][64];
+
+    static {
+        for (int file = 0; file < 8; file++) {
+            if (file > 0) {
+                ADJACENT_FILES[file] |= FILE_A << (file - 1);
+            }
+            if (file < 7) {
+                ADJACENT_FILES[file] |= FILE_A << (file + 1);
+            }
+        }
+        for (int position = 0; position < 64; position++) {
+            long white = getRay(NORTH, position);
+            long black = getRay(SOUTH, position);
+            PASSED[WHITE][position] = white | ((white << 1) & ~FILE_A)
+                    | ((white >>> 1) & ~FILE_H);
+            PASSED[BLACK][position] = black | ((black << 1) & ~FILE_A)
+                    | ((black >>> 1) & ~FILE_H);
+        }
+    }
+
+    private long[] keys;
+    private int[] scores;
+    private long probes = 0;
+    private long hits = 0;
+
+    /**
+     * Creates a table with the default size
+     */
+    public PawnTable() {
+        this(DEFAULT_SIZE);
+    }
+
+    /**
+     * Creates a table
+     * @param size Number of entries, must be a power of two
+     */
+    public PawnTable(int size) {
+        if (size < 1 || Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("Invalid size: " + size);
+        }
+        keys = new long[size];
+        scores = new int[size];
+    }
+
+    /**
+     * Get the pawn structure score of a position, from the cache if possible
+     * @param bits
+     * @return The middlegame score in the high 16 bits and the endgame score in the low 16
+     * bits, both from white's view, see getMiddlegame() and getEndgame()
+     */
+    public int probe(BitBoard bits) {
+        long key = bits.getPawnHash();
+        int index = (int) key & (keys.length - 1);
+        probes++;
+        // A position without pawns has key 0, which empty entries also have
+        if (keys[index] == key && key != 0) {
+            hits++;
+            return scores[index];
+        }
+        int score = evaluate(bits);
+        keys[index] = key;
+        scores[index] = score;
+        return score;
+    }
+
+    /**
+     * Get the fraction of probes found in the cache
+     * @return The hit rate between 0 and 1
+     */
+    public double getHitRate() {
+        return probes == 0 ? 0 : (double) hits / probes;
+    }
+
+    /**
+     * Evaluate the pawn structure of a position
+     * @param bits
+     * @return The middlegame and endgame scores packed as described in probe()
+     */
+    public static int evaluate(BitBoard bits) {
+        int middlegame = 0, endgame = 0;
+        for (int color = WHITE; color <= BLACK; color++) {
+            int sign = color == WHITE ? 1 : -1;
+            long own = bits.getPieces(color, PAWN);
+            long enemies = bits.getPieces(color ^ 1, PAWN);
+            long pawns = own;
+            while (pawns != 0) {
+                int position = Long.numberOfTrailingZeros(pawns);
+                pawns &= pawns - 1;
+                int file = getFile(position);
+
+                // Every pawn but the one furthest behind on a file counts as doubled
+                long behind = getRay(color == WHITE ? SOUTH : NORTH, position);
+                if ((own & behind) != 0) {
+                    middlegame += sign * DOUBLED_MIDDLEGAME;
+                    endgame += sign * DOUBLED_ENDGAME;
+                }
+                if ((own & ADJACENT_FILES[file]) == 0) {
+                    middlegame += sign * ISOLATED_MIDDLEGAME;
+                    endgame += sign * ISOLATED_ENDGAME;
+                }
+                if ((enemies & PASSED[color][position]) == 0 && (own & PASSED[color][position]
+                        & (FILE_A << file)) == 0) {
+                    int rank = getRank(position);
+                    if (color == BLACK) {
+                        rank = 7 - rank;
+                    }
+                    middlegame += sign * PASSED_MIDDLEGAME[rank];
+                    endgame += sign * PASSED_ENDGAME[rank];
+                }
+            }
+        }
+        return (middlegame << 16) + endgame;
+    }
+
+    /**
+     * Get the middlegame part of a packed score
+     * @param score
+     * @return The middlegame score
+     */
+    public static int getMiddlegame(int score) {
+        return (score + 0x8000) >> 16;
+    }
+
+    /**
+     * Get the endgame part of a packed score
+     * @param score
+     * @return The endgame score
+     */
+    public static int getEndgame(int score) {
+        return (short) score;
+    }
+
+}
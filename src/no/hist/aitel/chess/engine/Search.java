@@ -0,0 +1,451 @@
+/*
+ * Search.java
+ *
+ */
+
+package no.hist.aitel.chess.engine;
+
+import no.hist.aitel.chess.board.BitBoard;
+import no.hist.aitel.chess.board.Move;
+import no.hist.aitel.chess.board.MoveGenerator;
+import no.hist.aitel.chess.board.MoveList;
+import static no.hist.aitel.chess.engine.EngineConstants.*;
+
+/**
+ * Iterative deepening alpha-beta search in negamax form. The search works on its own copy of
+ * the position and makes and takes back moves on it, so nothing is allocated per node.
+ * Moves are searched in the order given by MoveOrder.
+ * @author martin
+ */
+
+public class Search {
+
+    /**
+     * Number of nodes between each check of the time limit, a power of two so the check is a
+     * mask
+     */
+    private static final int CHECK_INTERVAL = 2048;
+
+    private BitBoard bits;
+    private TranspositionTable table;
+    private PawnTable pawns = new PawnTable();
+    private StaticExchange exchange = new StaticExchange();
+    private MoveOrder order = new MoveOrder();
+
+    /**
+     * Static exchange scores of the captures at each ply of the quiescence search
+     */
+    private int[][] gains = new int[MAX_PLY + 1][MoveList.SIZE];
+
+    /**
+     * Plies added to the depth of each iteration, so helper threads search ahead of the main
+     */
+    private int skip;
+    private MoveList[] lists = new MoveList[MAX_PLY + 1];
+
+    private volatile boolean stopped = false;
+    private SearchLimits limits;
+    private TimeManager timer;
+    private long maxNodes;
+    private long nodes;
+
+    private int bestMove = Move.NONE;
+    private int score;
+    private int depth;
+
+    /**
+     * Told about each completed iteration, or null
+     */
+    private SearchListener listener = null;
+    private MoveList pv = new MoveList();
+    private MoveList legal = new MoveList();
+
+    /**
+     * Creates a search of a position. The position is copied, so the search doesn't change it.
+     * @param bits
+     * @param table Table of earlier results, which may be shared with other searches
+     * @param skip Plies added to the depth of each iteration
+     */
+    public Search(BitBoard bits, TranspositionTable table, int skip) {
+        this.bits = new BitBoard(bits);
+        this.table = table;
+        this.skip = skip;
+        for (int i = 0; i < lists.length; i++) {
+            lists[i] = new MoveList();
+        }
+    }
+
+    /**
+     * Search the position until a limit is reached or the search is stopped
+     * @param limits
+     * @return The best move, or Move.NONE if there are no legal moves
+     */
+    public int search(SearchLimits limits) {
+        this.limits = limits;
+        timer = new TimeManager(limits, System.currentTimeMillis());
+        maxNodes = limits.getNodes() == 0 ? Long.MAX_VALUE : limits.getNodes();
+        nodes = 0;
+        bestMove = Move.NONE;
+        score = 0;
+        depth = 0;
+        order.clear();
+
+        MoveList root = MoveGenerator.generateLegalMoves(bits, lists[0]);
+        if (root.size() == 0) {
+            score = bits.isCheck() ? -MATE : DRAW;
+            return bestMove;
+        }
+        bestMove = root.get(0);
+
+        for (int iteration = 1 + skip; iteration <= limits.getDepth(); iteration++) {
+            if (limits.isStopped()) {
+                break;
+            }
+            int result = searchRoot(iteration);
+            if (stopped) {
+                break;
+            }
+            score = result;
+            depth = iteration;
+            if (listener != null) {
+                listener.iteration(depth, score, getPrincipalVariation(depth));
+            }
+
+            // A mate within the searched depth won't change with more depth
+            if (Math.abs(score) >= MATE_BOUND && MATE - Math.abs(score) <= iteration) {
+                break;
+            }
+            // Stop at the soft deadline, and at once with only one legal move
+            if (timer.isSoftLimit(bestMove, System.currentTimeMillis())
+                    || (root.size() == 1 && timer.isLimited())) {
+                break;
+            }
+        }
+        return bestMove;
+    }
+
+    /**
+     * Search the moves at the root, starting with the best move of the last iteration
+     * @param depth
+     * @return The score of the best move
+     */
+    private int searchRoot(int depth) {
+        MoveList list = lists[0];
+        moveToFront(list, bestMove);
+
+        int alpha = -INFINITE;
+        int best = Move.NONE;
+        for (int i = 0; i < list.size(); i++) {
+            int move = list.get(i);
+            bits.makeMove(move);
+            int value = -search(depth - 1, -INFINITE, -alpha, 1);
+            bits.unmakeMove();
+            if (stopped) {
+                break;
+            }
+            if (value > alpha) {
+                alpha = value;
+                best = move;
+            }
+        }
+        // Moves searched before stopping are still better than the last iteration's best
+        if (best != Move.NONE) {
+            bestMove = best;
+            if (!stopped) {
+                table.store(bits.getHash(), best, alpha, depth, TranspositionTable.EXACT, 0);
+            }
+        }
+        return alpha;
+    }
+
+    /**
+     * Follow the best moves stored in the table from the root, starting with the best move
+     * @param max Most moves to follow
+     * @return The moves
+     */
+    private MoveList getPrincipalVariation(int max) {
+        pv.clear();
+        pv.add(bestMove);
+        bits.makeMove(bestMove);
+        while (pv.size() < max && !bits.isRepetition()) {
+            int move = TranspositionTable.getMove(table.probe(bits.getHash()));
+            // Another thread may have replaced the entry with one for another position
+            if (move == Move.NONE
+                    || !MoveGenerator.generateLegalMoves(bits, legal).contains(move)) {
+                break;
+            }
+            pv.add(move);
+            bits.makeMove(move);
+        }
+        for (int i = 0; i < pv.size(); i++) {
+            bits.unmakeMove();
+        }
+        return pv;
+    }
+
+    /**
+     * Move a move to the front of a list, so it is searched first
+     * @param list
+     * @param move
+     */
+    private static void moveToFront(MoveList list, int move) {
+        for (int i = 1; i < list.size(); i++) {
+            if (list.get(i) == move) {
+                list.set(i, list.get(0));
+                list.set(0, move);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Search a position below the root
+     * @param depth Remaining depth
+     * @param alpha
+     * @param beta
+     * @param ply Distance from the root
+     * @return The score for the player to move
+     */
+    private int search(int depth, int alpha, int beta, int ply) {
+        nodes++;
+        if ((nodes & (CHECK_INTERVAL - 1)) == 0) {
+            checkLimits();
+        }
+        if (stopped) {
+            return 0;
+        }
+        if (bits.getHalfMoves() >= 100 || bits.isRepetition() || bits.isInsufficientMaterial()) {
+            return DRAW;
+        }
+        if (ply >= MAX_PLY) {
+            return Evaluation.evaluate(bits, pawns);
+        }
+
+        // Look one ply further when in check, so checks don't hide what happens at the horizon
+        boolean check = bits.isCheck();
+        if (check) {
+            depth++;
+        }
+        if (depth <= 0) {
+            return quiesce(alpha, beta, ply);
+        }
+
+        // Use an earlier result if it was searched deep enough and its bound decides the score
+        long hash = bits.getHash();
+        long entry = table.probe(hash);
+        int hashMove = TranspositionTable.getMove(entry);
+        if (entry != 0 && TranspositionTable.getDepth(entry) >= depth) {
+            int value = TranspositionTable.getScore(entry, ply);
+            int bound = TranspositionTable.getBound(entry);
+            if (bound == TranspositionTable.EXACT
+                    || (bound == TranspositionTable.LOWER && value >= beta)
+                    || (bound == TranspositionTable.UPPER && value <= alpha)) {
+                return value;
+            }
+        }
+
+        MoveList list = MoveGenerator.generateLegalMoves(bits, lists[ply]);
+        if (list.size() == 0) {
+            return check ? -MATE + ply : DRAW;
+        }
+        order.score(bits, list, ply, hashMove);
+
+        int originalAlpha = alpha;
+        int best = -INFINITE;
+        int bestMove = Move.NONE;
+        for (int i = 0; i < list.size(); i++) {
+            int move = order.next(list, ply, i);
+            boolean quiet = MoveOrder.isQuiet(bits, move);
+            bits.makeMove(move);
+            int value = -search(depth - 1, -beta, -alpha, ply + 1);
+            bits.unmakeMove();
+            if (stopped) {
+                return 0;
+            }
+            if (value > best) {
+                best = value;
+                bestMove = move;
+                if (value > alpha) {
+                    alpha = value;
+                    if (alpha >= beta) {
+                        if (quiet) {
+                            order.addCutoff(bits.getTurn(), move, depth, ply);
+                        }
+                        break;
+                    }
+                }
+            }
+        }
+
+        int bound;
+        if (best >= beta) {
+            bound = TranspositionTable.LOWER;
+        } else if (best > originalAlpha) {
+            bound = TranspositionTable.EXACT;
+        } else {
+            bound = TranspositionTable.UPPER;
+            // No move raised alpha, so none of them is known to be best
+            bestMove = Move.NONE;
+        }
+        table.store(hash, bestMove, best, depth, bound, ply);
+        return best;
+    }
+
+    /**
+     * Search captures and promotions until the position is quiet, so the evaluation isn't
+     * taken in the middle of an exchange. The player to move may stand pat on the static
+     * evaluation instead of capturing, except when in check where every evasion is searched.
+     * Captures are searched in order of static exchange evaluation, and the ones which lose
+     * material are skipped.
+     * @param alpha
+     * @param beta
+     * @param ply Distance from the root
+     * @return The score for the player to move
+     */
+    private int quiesce(int alpha, int beta, int ply) {
+        nodes++;
+        if ((nodes & (CHECK_INTERVAL - 1)) == 0) {
+            checkLimits();
+        }
+        if (stopped) {
+            return 0;
+        }
+        if (ply >= MAX_PLY) {
+            return Evaluation.evaluate(bits, pawns);
+        }
+
+        boolean check = bits.isCheck();
+        int best = -INFINITE;
+        MoveList list;
+        if (check) {
+            list = MoveGenerator.generateLegalMoves(bits, lists[ply]);
+            if (list.size() == 0) {
+                return -MATE + ply;
+            }
+            order.score(bits, list, ply, Move.NONE);
+        } else {
+            best = Evaluation.evaluate(bits, pawns);
+            if (best >= beta) {
+                return best;
+            }
+            if (best > alpha) {
+                alpha = best;
+            }
+            list = MoveGenerator.generateCaptures(bits, lists[ply]);
+            scoreCaptures(list, gains[ply]);
+        }
+
+        for (int i = 0; i < list.size(); i++) {
+            // Evasions are ordered here, captures were sorted by scoreCaptures()
+            int move = check ? order.next(list, ply, i) : list.get(i);
+            bits.makeMove(move);
+            int value = -quiesce(-beta, -alpha, ply + 1);
+            bits.unmakeMove();
+            if (stopped) {
+                return 0;
+            }
+            if (value > best) {
+                best = value;
+                if (value > alpha) {
+                    alpha = value;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Remove the captures which lose material from a list and sort the rest by how much
+     * material they win, best first
+     * @param list
+     * @param scores Buffer for the scores
+     */
+    private void scoreCaptures(MoveList list, int[] scores) {
+        int size = 0;
+        for (int i = 0; i < list.size(); i++) {
+            int move = list.get(i);
+            int gain = exchange.evaluate(bits, move);
+            if (gain < 0) {
+                continue;
+            }
+            // Insertion sort, the lists are short
+            int j = size++;
+            for (; j > 0 && scores[j - 1] < gain; j--) {
+                scores[j] = scores[j - 1];
+                list.set(j, list.get(j - 1));
+            }
+            scores[j] = gain;
+            list.set(j, move);
+        }
+        list.truncate(size);
+    }
+
+    /**
+     * Stop the search if the time or node limit is reached or the limits have been stopped
+     */
+    private void checkLimits() {
+        if (nodes >= maxNodes || limits.isStopped()
+                || timer.isHardLimit(System.currentTimeMillis())) {
+            stopped = true;
+        }
+    }
+
+    /**
+     * Set the listener told about each completed iteration
+     * @param listener The listener, or null
+     */
+    public void setListener(SearchListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Stop the search as soon as possible, may be called from another thread
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Get the best move found
+     * @return The move, or Move.NONE if there are no legal moves
+     */
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    /**
+     * Get the score of the best move from the last completed iteration
+     * @return The score in centipawns for the player to move, see EngineConstants for mates
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Get the depth of the last completed iteration
+     * @return The depth in plies
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Get the pawn structure cache of this search
+     * @return The cache
+     */
+    public PawnTable getPawnTable() {
+        return pawns;
+    }
+
+    /**
+     * Get the number of nodes searched
+     * @return The number of nodes
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+}
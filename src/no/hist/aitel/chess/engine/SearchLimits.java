@@ -0,0 +1,222 @@
+/*
+ * SearchLimits.java
+ *
+ */
+
+package no.hist.aitel.chess.engine;
+
+import static no.hist.aitel.chess.engine.EngineConstants.*;
+
+/**
+ * Limits for a search. The search stops at whichever limit is reached first, a limit of 0
+ * means no limit. Instead of a fixed time the clock of the player to move may be given, and
+ * TimeManager decides how much of it to use.
+ * @author martin
+ */
+
+public class SearchLimits {
+
+    private int depth = 0;
+    private long time = 0;
+    private long nodes = 0;
+    private long clock = 0;
+    private long increment = 0;
+    private int movesToGo = 0;
+
+    /**
+     * Set when the search is stopped, which may happen before it has started
+     */
+    private volatile boolean stopped = false;
+
+    /**
+     * Set when the result must be held back until the search is stopped
+     */
+    private boolean infinite = false;
+
+    /**
+     * Creates limits without any limit, the search runs until stopped or MAX_PLY is reached
+     */
+    public SearchLimits() {
+    }
+
+    /**
+     * Creates limits for a depth and time
+     * @param depth Max depth in plies
+     * @param time Max time in milliseconds
+     */
+    public SearchLimits(int depth, long time) {
+        setDepth(depth);
+        setTime(time);
+    }
+
+    /**
+     * Set max depth
+     * @param depth Max depth in plies, or 0 for no limit
+     */
+    public void setDepth(int depth) {
+        if (depth < 0) {
+            throw new IllegalArgumentException("Invalid depth: " + depth);
+        }
+        this.depth = depth;
+    }
+
+    /**
+     * Get max depth
+     * @return Max depth in plies, never more than MAX_PLY
+     */
+    public int getDepth() {
+        return depth == 0 || depth > MAX_PLY ? MAX_PLY : depth;
+    }
+
+    /**
+     * Set max time
+     * @param time Max time in milliseconds, or 0 for no limit
+     */
+    public void setTime(long time) {
+        if (time < 0) {
+            throw new IllegalArgumentException("Invalid time: " + time);
+        }
+        this.time = time;
+    }
+
+    /**
+     * Get max time
+     * @return Max time in milliseconds, or 0 for no limit
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Set max number of nodes
+     * @param nodes Max nodes, or 0 for no limit
+     */
+    public void setNodes(long nodes) {
+        if (nodes < 0) {
+            throw new IllegalArgumentException("Invalid nodes: " + nodes);
+        }
+        this.nodes = nodes;
+    }
+
+    /**
+     * Get max number of nodes
+     * @return Max nodes, or 0 for no limit
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Set the time left on the clock of the player to move
+     * @param clock Time left in milliseconds, or 0 for no clock
+     */
+    public void setClock(long clock) {
+        if (clock < 0) {
+            throw new IllegalArgumentException("Invalid clock: " + clock);
+        }
+        this.clock = clock;
+    }
+
+    /**
+     * Get the time left on the clock of the player to move
+     * @return Time left in milliseconds, or 0 for no clock
+     */
+    public long getClock() {
+        return clock;
+    }
+
+    /**
+     * Set the time added to the clock after each move
+     * @param increment Increment in milliseconds
+     */
+    public void setIncrement(long increment) {
+        if (increment < 0) {
+            throw new IllegalArgumentException("Invalid increment: " + increment);
+        }
+        this.increment = increment;
+    }
+
+    /**
+     * Get the time added to the clock after each move
+     * @return Increment in milliseconds
+     */
+    public long getIncrement() {
+        return increment;
+    }
+
+    /**
+     * Set the number of moves until more time is added to the clock
+     * @param movesToGo Moves to play, or 0 if the clock time is for the rest of the game
+     */
+    public void setMovesToGo(int movesToGo) {
+        if (movesToGo < 0) {
+            throw new IllegalArgumentException("Invalid moves to go: " + movesToGo);
+        }
+        this.movesToGo = movesToGo;
+    }
+
+    /**
+     * Get the number of moves until more time is added to the clock
+     * @return Moves to play, or 0 if the clock time is for the rest of the game
+     */
+    public int getMovesToGo() {
+        return movesToGo;
+    }
+
+    /**
+     * Set if the result must be held back until the search is stopped, as for UCI go infinite
+     * and go ponder, even when the search ends by itself
+     * @param infinite
+     */
+    public synchronized void setInfinite(boolean infinite) {
+        this.infinite = infinite;
+        notifyAll();
+    }
+
+    /**
+     * Check if the result must be held back until the search is stopped
+     * @return True if it must and false otherwise
+     */
+    public synchronized boolean isInfinite() {
+        return infinite;
+    }
+
+    /**
+     * Wait until the search is stopped, or the result is no longer held back
+     * @throws InterruptedException
+     */
+    public synchronized void waitForStop() throws InterruptedException {
+        while (infinite && !stopped) {
+            wait();
+        }
+    }
+
+    /**
+     * Stop the search using these limits as soon as possible, may be called from another
+     * thread and before the search has started
+     */
+    public synchronized void stop() {
+        stopped = true;
+        notifyAll();
+    }
+
+    /**
+     * Check if the search using these limits has been stopped
+     * @return True if it has and false otherwise
+     */
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * String representation of object
+     * @return Values of object variables
+     */
+    @Override
+    public String toString() {
+        return "Depth: " + depth + "\nTime: " + time + "\nNodes: " + nodes + "\nClock: " + clock
+                + "\nIncrement: " + increment + "\nMoves to go: " + movesToGo
+                + "\nInfinite: " + isInfinite();
+    }
+
+}
@@ -0,0 +1,26 @@
+/*
+ * SearchListener.java
+ *
+ */
+
+package no.hist.aitel.chess.engine;
+
+import no.hist.aitel.chess.board.MoveList;
+
+/**
+ * Receives the result of each completed iteration of a search, called on the searching thread.
+ * @author martin
+ */
+
+public interface SearchListener {
+
+    /**
+     * An iteration of the search is completed
+     * @param depth The depth of the iteration in plies
+     * @param score The score for the player to move, see EngineConstants for mates
+     * @param pv The principal variation, starting with the best move, which is changed after
+     * the call and mustn't be kept
+     */
+    void iteration(int depth, int score, MoveList pv);
+
+}
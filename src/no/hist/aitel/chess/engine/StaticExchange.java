@@ -0,0 +1,109 @@
+/*
+ * StaticExchange.java
+ *
+ */
+
+package no.hist.aitel.chess.engine;
+
+import no.hist.aitel.chess.board.BitBoard;
+import no.hist.aitel.chess.board.Move;
+import no.hist.aitel.chess.board.PieceSquareTables;
+import static no.hist.aitel.chess.piece.PieceConstants.*;
+
+/**
+ * Static exchange evaluation: the material won or lost by a capture when both players keep
+ * recapturing on the same position with their least valuable piece, and either may stop when
+ * recapturing loses. Worked out from the attackers of the position, without making moves.
+ * Pieces behind a capturing slider join in as it leaves, since the attackers are looked up
+ * again with the capturing pieces removed. Each search thread has its own instance, since the
+ * gains of the exchange are kept in a reused buffer.
+ * @author martin
+ */
+
+public class StaticExchange {
+
+    /**
+     * Value of each type from PieceSquareTables, the king high enough that capturing it ends
+     * any exchange
+     */
+    private static final int[] VALUES = new int[KING + 1];
+
+    static {
+        for (int type = PAWN; type < KING; type++) {
+            VALUES[type] = PieceSquareTables.getValue(type);
+        }
+        VALUES[KING] = 20000;
+    }
+
+    /**
+     * Types in the order pieces join an exchange, least valuable first
+     */
+    private static final int[] ORDER = {PAWN, KNIGHT, BISHOP, ROOK, QUEEN, KING};
+
+    /**
+     * Material balance after each capture in the exchange, no exchange has more than 32
+     * captures
+     */
+    private int[] gain = new int[34];
+
+    /**
+     * Evaluate the exchange started by a move
+     * @param bits Position before the move
+     * @param move
+     * @return The material won by the player making the move, negative if lost
+     */
+    public int evaluate(BitBoard bits, int move) {
+        int from = Move.getFrom(move);
+        int to = Move.getTo(move);
+        int flag = Move.getFlag(move);
+
+        int capturedAt = to;
+        long occupied = bits.getOccupied() & ~(1L << from);
+        if (flag == Move.EN_PASSANT) {
+            capturedAt = bits.getTurn() == WHITE ? to - 8 : to + 8;
+            occupied &= ~(1L << capturedAt);
+        } else if (flag == Move.CASTLING) {
+            return 0;
+        }
+        int captured = bits.getType(capturedAt);
+        gain[0] = captured == UNDEFINED ? 0 : VALUES[captured];
+        int attacker = bits.getType(from);
+        if (Move.isPromotion(move)) {
+            attacker = Move.getPromotion(move);
+            gain[0] += VALUES[attacker] - VALUES[PAWN];
+        }
+
+        int color = bits.getTurn();
+        int depth = 0;
+        while (true) {
+            // What the other player wins by capturing the piece which just moved there
+            depth++;
+            gain[depth] = VALUES[attacker] - gain[depth - 1];
+            if (Math.max(-gain[depth - 1], gain[depth]) < 0) {
+                // Neither player can gain from going on
+                break;
+            }
+            color ^= 1;
+            long attackers = bits.getAttackers(to, color, occupied) & occupied;
+            if (attackers == 0) {
+                break;
+            }
+            long piece = 0;
+            for (int i = 0; i < ORDER.length; i++) {
+                piece = attackers & bits.getPieces(color, ORDER[i]);
+                if (piece != 0) {
+                    attacker = ORDER[i];
+                    break;
+                }
+            }
+            occupied &= ~Long.lowestOneBit(piece);
+        }
+        // The last gain assumes a capture nobody can make, and each player only captures
+        // if it pays off
+        while (--depth > 0) {
+            gain[depth - 1] = -Math.max(-gain[depth - 1], gain[depth]);
+        }
+        return gain[0];
+    }
+
+}
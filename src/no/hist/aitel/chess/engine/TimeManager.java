@@ -0,0 +1,114 @@
+/*
+ * TimeManager.java
+ *
+ */
+
+package no.hist.aitel.chess.engine;
+
+/**
+ * Decides how long a search may think. Clock time, increment and moves to go are turned into
+ * two deadlines: the soft one is checked between iterations, and the search doesn't start
+ * another iteration after it, while the hard one is checked during the search and stops it.
+ * When the best move stays the same over several iterations the soft deadline comes earlier,
+ * and when it just changed it comes later. A fixed time from SearchLimits is used for both.
+ * @author martin
+ */
+
+public class TimeManager {
+
+    /**
+     * Time kept back for the GUI to receive the move, in milliseconds
+     */
+    private static final long OVERHEAD = 50;
+
+    /**
+     * Moves the clock time is shared between when it is for the rest of the game, and the most
+     * it is ever shared between
+     */
+    private static final int DEFAULT_MOVES_TO_GO = 30;
+    private static final int MAX_MOVES_TO_GO = 50;
+
+    /**
+     * How many times the target time the hard deadline may be
+     */
+    private static final int HARD_FACTOR = 4;
+
+    /**
+     * Percent of the soft time used when the best move just changed, taken down in steps for
+     * each iteration it stays the same, but not below the minimum
+     */
+    private static final int UNSTABLE_PERCENT = 120;
+    private static final int STABLE_STEP = 15;
+    private static final int MIN_PERCENT = 50;
+
+    private long start;
+    private long soft = Long.MAX_VALUE;
+    private long hard = Long.MAX_VALUE;
+
+    private int lastBestMove;
+    private int stability = 0;
+
+    /**
+     * Creates deadlines for a search
+     * @param limits
+     * @param start The time the search started, as from System.currentTimeMillis()
+     */
+    public TimeManager(SearchLimits limits, long start) {
+        this.start = start;
+        long clock = limits.getClock();
+        if (clock > 0) {
+            long available = Math.max(Math.max(clock - OVERHEAD, clock / 2), 1);
+            int moves = limits.getMovesToGo() == 0 ? DEFAULT_MOVES_TO_GO
+                    : Math.min(limits.getMovesToGo(), MAX_MOVES_TO_GO);
+            long target = available / moves + limits.getIncrement() * 3 / 4;
+            // With one move to go everything may be used, otherwise keep time for later moves
+            long maxHard = moves == 1 ? available : available / 2;
+            long hardTime = Math.max(Math.min(target * HARD_FACTOR, maxHard), 1);
+            hard = start + hardTime;
+            soft = start + Math.min(target, hardTime);
+        }
+        if (limits.getTime() > 0) {
+            hard = Math.min(hard, start + limits.getTime());
+            soft = Math.min(soft, hard);
+        }
+    }
+
+    /**
+     * Check if the search has a time limit
+     * @return True if limited and false otherwise
+     */
+    public boolean isLimited() {
+        return hard != Long.MAX_VALUE;
+    }
+
+    /**
+     * Check if the search must stop now, meant to be called every few thousand nodes
+     * @param now The current time, as from System.currentTimeMillis()
+     * @return True if the hard deadline is reached and false otherwise
+     */
+    public boolean isHardLimit(long now) {
+        return now >= hard;
+    }
+
+    /**
+     * Check after an iteration if the search should stop rather than start another
+     * @param bestMove The best move of the completed iteration
+     * @param now The current time, as from System.currentTimeMillis()
+     * @return True if the soft deadline is reached and false otherwise
+     */
+    public boolean isSoftLimit(int bestMove, long now) {
+        if (bestMove == lastBestMove) {
+            stability++;
+        } else {
+            stability = 0;
+            lastBestMove = bestMove;
+        }
+        if (soft == Long.MAX_VALUE) {
+            return false;
+        }
+        int percent = Math.max(UNSTABLE_PERCENT - STABLE_STEP * stability, MIN_PERCENT);
+        long deadline = start + (soft - start) * percent / 100;
+        return now >= Math.min(deadline, hard);
+    }
+
+}
@@ -0,0 +1,182 @@
+/*
+ * TranspositionTable.java
+ *
+ */
+
+package no.hist.aitel.chess.engine;
+
+import static no.hist.aitel.chess.engine.EngineConstants.*;
+
+/**
+ * Table of search results keyed by position hash, shared by all search threads without
+ * locking. Each entry is two longs: the data and the hash XOR the data. A reader accepts an
+ * entry only if XOR-ing the two gives back its hash, so an entry torn by two threads writing at
+ * once is seen as a miss instead of a wrong result.
+ * The data packs bits 0-15 move, 16-31 score, 32-39 depth and 40-41 bound.
+ * @author martin
+ */
+
+public class TranspositionTable {
+
+    /**
+     * Bound types. The bound is never 0, so stored data is never 0 either.
+     */
+    public static final int UPPER = 1;
+    public static final int LOWER = 2;
+    public static final int EXACT = 3;
+
+    /**
+     * Bytes used by each entry
+     */
+    private static final int ENTRY_SIZE = 16;
+
+    /**
+     * The entries, replaced as a whole when resized so a search running meanwhile keeps using
+     * the array it read
+     */
+    private volatile long[] table;
+
+    /**
+     * Creates a table
+     * @param megabytes Max memory used, rounded down to a power of two number of entries
+     */
+    public TranspositionTable(int megabytes) {
+        resize(megabytes);
+    }
+
+    /**
+     * Change the size of the table, removing all entries
+     * @param megabytes Max memory used, rounded down to a power of two number of entries
+     */
+    public void resize(int megabytes) {
+        if (megabytes < 1) {
+            throw new IllegalArgumentException("Invalid size: " + megabytes);
+        }
+        long entries = Long.highestOneBit((long) megabytes * 1024 * 1024 / ENTRY_SIZE);
+        // Two longs per entry must fit in an array
+        entries = Math.min(entries, 1 << 29);
+        // Published only once allocated, a search running meanwhile never sees null
+        long[] resized = new long[(int) entries * 2];
+        table = resized;
+    }
+
+    /**
+     * Remove all entries
+     */
+    public void clear() {
+        long[] current = table;
+        for (int i = 0; i < current.length; i++) {
+            current[i] = 0;
+        }
+    }
+
+    /**
+     * Get the number of entries the table can hold
+     * @return The number of entries
+     */
+    public int getSize() {
+        return table.length >> 1;
+    }
+
+    /**
+     * Get the index of the entry for a position
+     * @param current The entries
+     * @param hash
+     * @return The index of the first long of the entry
+     */
+    private static int getIndex(long[] current, long hash) {
+        return ((int) hash & ((current.length >> 1) - 1)) << 1;
+    }
+
+    /**
+     * Look up a position
+     * @param hash
+     * @return The data stored for the position, or 0 if there is none
+     */
+    public long probe(long hash) {
+        long[] current = table;
+        int index = getIndex(current, hash);
+        long data = current[index + 1];
+        if ((current[index] ^ data) != hash) {
+            return 0;
+        }
+        return data;
+    }
+
+    /**
+     * Store a search result. A result for another position is always replaced, a result for
+     * the same position only by one searched at least as deep or an exact score.
+     * @param hash
+     * @param move Best move, or Move.NONE to keep the stored move
+     * @param score
+     * @param depth
+     * @param bound UPPER, LOWER or EXACT
+     * @param ply Distance from the root, mate scores are stored relative to the position
+     */
+    public void store(long hash, int move, int score, int depth, int bound, int ply) {
+        long[] current = table;
+        int index = getIndex(current, hash);
+        long old = current[index + 1];
+        if ((current[index] ^ old) == hash) {
+            if (depth < getDepth(old) && bound != EXACT) {
+                return;
+            }
+            if (move == 0) {
+                move = getMove(old);
+            }
+        }
+        if (score >= MATE_BOUND) {
+            score += ply;
+        } else if (score <= -MATE_BOUND) {
+            score -= ply;
+        }
+        long data = (move & 0xFFFFL) | ((score & 0xFFFFL) << 16)
+                | ((long) Math.min(Math.max(depth, 0), 255) << 32) | ((long) bound << 40);
+        current[index] = hash ^ data;
+        current[index + 1] = data;
+    }
+
+    /**
+     * Get the move of an entry
+     * @param data
+     * @return The move, or Move.NONE
+     */
+    public static int getMove(long data) {
+        return (int) (data & 0xFFFF);
+    }
+
+    /**
+     * Get the score of an entry
+     * @param data
+     * @param ply Distance from the root, mate scores are made relative to the root
+     * @return The score
+     */
+    public static int getScore(long data, int ply) {
+        int score = (short) (data >>> 16);
+        if (score >= MATE_BOUND) {
+            score -= ply;
+        } else if (score <= -MATE_BOUND) {
+            score += ply;
+        }
+        return score;
+    }
+
+    /**
+     * Get the depth of an entry
+     * @param data
+     * @return The depth
+     */
+    public static int getDepth(long data) {
+        return (int) ((data >>> 32) & 0xFF);
+    }
+
+    /**
+     * Get the bound of an entry
+     * @param data
+     * @return UPPER, LOWER or EXACT
+     */
+    public static int getBound(long data) {
+        return (int) ((data >>> 40) & 3);
+    }
+
+}
@@ -0,0 +1,423 @@
+/*
+ * UciMain.java
+ *
+ */
+
+package no.hist.aitel.chess.engine;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import no.hist.aitel.chess.board.Board;
+import no.hist.aitel.chess.board.BoardException;
+import no.hist.aitel.chess.board.Move;
+import no.hist.aitel.chess.board.MoveGenerator;
+import no.hist.aitel.chess.board.MoveList;
+import static no.hist.aitel.chess.engine.EngineConstants.*;
+import static no.hist.aitel.chess.piece.PieceConstants.*;
+
+/**
+ * Runs the engine without the GUI, speaking the UCI protocol on standard input and output so
+ * it can be used by tournament managers and analysis programs. The commands are read on the
+ * calling thread and each search runs on a thread of its own, so stop and isready are
+ * answered while searching. The result of go infinite and go ponder is only sent when the
+ * GUI stops the search or, when pondering, the opponent plays the expected move.
+ * @author martin
+ */
+
+public class UciMain {
+
+    private static final String NAME = "Chess";
+    private static final String AUTHOR = "HiST AITeL";
+
+    /**
+     * Largest transposition table in megabytes and largest number of threads offered
+     */
+    private static final int MAX_HASH_SIZE = 4096;
+    private static final int MAX_THREADS = 64;
+
+    private Engine engine = new Engine();
+    private Board board = new Board();
+    private PrintStream out;
+
+    /**
+     * The thread running the current search, or null
+     */
+    private Thread searcher;
+
+    /**
+     * The limits of the current search, which stop it even before the engine has started
+     * searching
+     */
+    private SearchLimits searchLimits;
+
+    /**
+     * Creates a front end writing to a stream
+     * @param out
+     */
+    public UciMain(PrintStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Start the engine on standard input and output
+     * @param args Not used
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        new UciMain(System.out).run(new BufferedReader(new InputStreamReader(System.in)));
+    }
+
+    /**
+     * Execute commands until quit or the end of the input
+     * @param in
+     * @throws IOException
+     */
+    public void run(BufferedReader in) throws IOException {
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (!execute(line)) {
+                return;
+            }
+        }
+        stopSearch();
+    }
+
+    /**
+     * Execute a command
+     * @param line
+     * @return False if the command was quit and true otherwise
+     */
+    public boolean execute(String line) {
+        String[] tokens = line.trim().split("\\s+");
+        String command = tokens[0];
+        if (command.equals("uci")) {
+            send("id name " + NAME);
+            send("id author " + AUTHOR);
+            send("option name Hash type spin default " + Engine.DEFAULT_HASH_SIZE
+                    + " min 1 max " + MAX_HASH_SIZE);
+            send("option name Threads type spin default 1 min 1 max " + MAX_THREADS);
+            send("option name BookFile type string default <empty>");
+            send("uciok");
+        } else if (command.equals("isready")) {
+            send("readyok");
+        } else if (command.equals("ucinewgame")) {
+            waitForSearch();
+            engine.clearHash();
+            board = new Board();
+        } else if (command.equals("setoption")) {
+            waitForSearch();
+            setOption(tokens);
+        } else if (command.equals("position")) {
+            waitForSearch();
+            setPosition(tokens);
+        } else if (command.equals("go")) {
+            waitForSearch();
+            go(tokens);
+        } else if (command.equals("stop")) {
+            stopSearch();
+        } else if (command.equals("ponderhit")) {
+            // Keep searching with the clock given to go ponder, and send the result when done
+            if (searchLimits != null) {
+                searchLimits.setInfinite(false);
+            }
+        } else if (command.equals("quit")) {
+            stopSearch();
+            return false;
+        } else if (command.length() > 0) {
+            send("info string Unknown command: " + line.trim());
+        }
+        return true;
+    }
+
+    /**
+     * Handle setoption name <name> value <value>
+     * @param tokens
+     */
+    private void setOption(String[] tokens) {
+        String name = getArgument(tokens, "name");
+        String value = getArgument(tokens, "value");
+        try {
+            if ("Hash".equalsIgnoreCase(name)) {
+                engine.setHashSize(Math.min(Integer.parseInt(value), MAX_HASH_SIZE));
+            } else if ("Threads".equalsIgnoreCase(name)) {
+                engine.setThreads(Math.min(Integer.parseInt(value), MAX_THREADS));
+            } else if ("BookFile".equalsIgnoreCase(name)) {
+                setBook(value);
+            } else {
+                send("info string Unknown option: " + name);
+            }
+        } catch (IllegalArgumentException e) {
+            // Also thrown for values which aren't numbers
+            send("info string Invalid value for " + name + ": " + value);
+        }
+    }
+
+    /**
+     * Open the opening book to play from
+     * @param path The book file, or empty to play without a book
+     */
+    private void setBook(String path) {
+        if (path == null || path.length() == 0 || path.equals("<empty>")) {
+            engine.setBook(null);
+            return;
+        }
+        try {
+            engine.setBook(new OpeningBook(new File(path)));
+        } catch (IOException e) {
+            engine.setBook(null);
+            send("info string Can't open book: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Handle position (startpos | fen <fen>) [moves ...]
+     * @param tokens
+     */
+    private void setPosition(String[] tokens) {
+        int i = 2;
+        if (tokens.length >= 2 && tokens[1].equals("startpos")) {
+            board = new Board();
+        } else if (tokens.length >= 3 && tokens[1].equals("fen")) {
+            StringBuilder fen = new StringBuilder(tokens[2]);
+            for (i = 3; i < tokens.length && !tokens[i].equals("moves"); i++) {
+                fen.append(' ').append(tokens[i]);
+            }
+            try {
+                board = Board.fromFen(fen.toString());
+            } catch (IllegalArgumentException e) {
+                send("info string " + e.getMessage());
+                return;
+            }
+        } else {
+            send("info string Invalid position command");
+            return;
+        }
+        if (i < tokens.length && tokens[i].equals("moves")) {
+            for (i++; i < tokens.length; i++) {
+                if (!playMove(tokens[i])) {
+                    send("info string Illegal move: " + tokens[i]);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Play a move given in coordinate notation
+     * @param notation
+     * @return True if the move was legal and false otherwise
+     */
+    private boolean playMove(String notation) {
+        MoveList list = MoveGenerator.generateLegalMoves(board);
+        for (int i = 0; i < list.size(); i++) {
+            int move = list.get(i);
+            if (Move.toString(move).equals(notation)) {
+                try {
+                    if (Move.isPromotion(move)) {
+                        board.movePiece(Move.getFrom(move), Move.getTo(move),
+                                Move.getPromotion(move));
+                    } else {
+                        board.movePiece(Move.getFrom(move), Move.getTo(move));
+                    }
+                    return true;
+                } catch (BoardException e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Handle go, starting a search on its own thread
+     * @param tokens
+     */
+    private void go(String[] tokens) {
+        final SearchLimits limits = getLimits(tokens);
+        searchLimits = limits;
+        final long start = System.currentTimeMillis();
+        engine.setListener(new SearchListener() {
+
+            public void iteration(int depth, int score, MoveList pv) {
+                StringBuilder line = new StringBuilder("info depth " + depth + " score "
+                        + getScore(score) + " nodes " + engine.getNodes() + " time "
+                        + (System.currentTimeMillis() - start) + " pv");
+                for (int i = 0; i < pv.size(); i++) {
+                    line.append(' ').append(Move.toString(pv.get(i)));
+                }
+                send(line.toString());
+            }
+        });
+        searcher = new Thread("Search") {
+            @Override
+            public void run() {
+                int move = engine.bestMove(board, limits);
+                // Also a search which ended by itself waits for stop when infinite
+                try {
+                    limits.waitForStop();
+                } catch (InterruptedException e) {
+                    // Send the move at once
+                }
+                long time = System.currentTimeMillis() - start;
+                send("info depth " + engine.getDepth() + " score " + getScore(engine.getScore())
+                        + " nodes " + engine.getNodes() + " time " + time
+                        + (move == Move.NONE ? "" : " pv " + Move.toString(move)));
+                send("bestmove " + (move == Move.NONE ? "0000" : Move.toString(move)));
+            }
+        };
+        searcher.start();
+    }
+
+    /**
+     * Get the limits of a go command, the clock of the player to move is left to TimeManager
+     * @param tokens
+     * @return The limits
+     */
+    private SearchLimits getLimits(String[] tokens) {
+        SearchLimits limits = new SearchLimits();
+        limits.setInfinite(hasKeyword(tokens, "infinite") || hasKeyword(tokens, "ponder"));
+        boolean white = board.getTurn() == WHITE;
+        String key = white ? "wtime" : "btime";
+        long clock = getNumber(tokens, key);
+        if (clock > 0) {
+            limits.setClock(clock);
+            limits.setIncrement(Math.max(getNumber(tokens, white ? "winc" : "binc"), 0));
+            limits.setMovesToGo((int) Math.max(getNumber(tokens, "movestogo"), 0));
+        } else if (hasKeyword(tokens, key)) {
+            // Out of time, move at once
+            limits.setTime(1);
+        }
+        long moveTime = getNumber(tokens, "movetime");
+        if (moveTime > 0) {
+            limits.setTime(moveTime);
+        }
+        long depth = getNumber(tokens, "depth");
+        if (depth > 0) {
+            limits.setDepth((int) Math.min(depth, MAX_PLY));
+        }
+        long nodes = getNumber(tokens, "nodes");
+        if (nodes > 0) {
+            limits.setNodes(nodes);
+        }
+        return limits;
+    }
+
+    /**
+     * Get a score in UCI notation
+     * @param score
+     * @return The score as cp or mate in moves
+     */
+    private static String getScore(int score) {
+        if (score >= MATE_BOUND) {
+            return "mate " + (MATE - score + 1) / 2;
+        } else if (score <= -MATE_BOUND) {
+            return "mate " + -(MATE + score) / 2;
+        }
+        return "cp " + score;
+    }
+
+    /**
+     * Stop the running search, which sends its best move, and wait for it
+     */
+    private void stopSearch() {
+        if (searchLimits != null) {
+            searchLimits.stop();
+        }
+        engine.stop();
+        waitForSearch();
+    }
+
+    /**
+     * Wait for the running search to finish, an infinite search is stopped since it would
+     * never finish by itself
+     */
+    private void waitForSearch() {
+        if (searcher == null) {
+            return;
+        }
+        if (searchLimits.isInfinite()) {
+            searchLimits.stop();
+            engine.stop();
+        }
+        boolean interrupted = false;
+        while (true) {
+            try {
+                searcher.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        searcher = null;
+        searchLimits = null;
+    }
+
+    /**
+     * Get the word following a keyword, up to the next keyword of setoption
+     * @param tokens
+     * @param key
+     * @return The words joined by spaces, or null if the keyword is missing
+     */
+    private static String getArgument(String[] tokens, String key) {
+        for (int i = 1; i < tokens.length - 1; i++) {
+            if (tokens[i].equals(key)) {
+                StringBuilder value = new StringBuilder(tokens[i + 1]);
+                for (int j = i + 2; j < tokens.length && !tokens[j].equals("value"); j++) {
+                    value.append(' ').append(tokens[j]);
+                }
+                return value.toString();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Check if a command has a keyword
+     * @param tokens
+     * @param key
+     * @return True if it has and false otherwise
+     */
+    private static boolean hasKeyword(String[] tokens, String key) {
+        for (int i = 1; i < tokens.length; i++) {
+            if (tokens[i].equals(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the number following a keyword of go
+     * @param tokens
+     * @param key
+     * @return The number, or 0 if the keyword is missing or not followed by a number
+     */
+    private static long getNumber(String[] tokens, String key) {
+        for (int i = 1; i < tokens.length - 1; i++) {
+            if (tokens[i].equals(key)) {
+                try {
+                    return Long.parseLong(tokens[i + 1]);
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Send a line to the GUI, from the reading or the searching thread
+     * @param line
+     */
+    private synchronized void send(String line) {
+        out.println(line);
+        out.flush();
+    }
+
+}
@@ -0,0 +1,191 @@
+/*
+ * Game.java
+ *
+ */
+
+package no.hist.aitel.chess.game;
+
+import no.hist.aitel.chess.board.BitBoard;
+import no.hist.aitel.chess.board.Board;
+import no.hist.aitel.chess.board.BoardException;
+import no.hist.aitel.chess.board.Move;
+
+/**
+ * A game as it is stored: the players, the time each has used, the position the game started
+ * from and the moves made since. The pieces are not stored, a board is rebuilt by making the
+ * moves again.
+ * @author martin
+ */
+
+public class Game {
+
+    private String white = "";
+    private String black = "";
+    private long whiteTime = 0;
+    private long blackTime = 0;
+
+    /**
+     * The FEN of the start position, or null for the initial position
+     */
+    private String startFen = null;
+    private int[] moves = new int[64];
+    private int moveCount = 0;
+
+    /**
+     * Creates a game from the initial position without moves
+     */
+    public Game() {
+    }
+
+    /**
+     * Creates a game with the start position and moves of a board
+     * @param board
+     * @return The game
+     */
+    public static Game fromBoard(Board board) {
+        Game game = new Game();
+        game.setStartFen(board.getStartFen());
+        BitBoard bits = board.getBitBoard();
+        for (int i = 0; i < bits.getPly(); i++) {
+            game.addMove(bits.getMove(i));
+        }
+        return game;
+    }
+
+    /**
+     * Create a board with the moves of the game made
+     * @return The board
+     * @throws IllegalArgumentException If a move isn't legal
+     */
+    public Board toBoard() {
+        Board board = startFen == null ? new Board() : Board.fromFen(startFen);
+        for (int i = 0; i < moveCount; i++) {
+            int move = moves[i];
+            try {
+                if (Move.isPromotion(move)) {
+                    board.movePiece(Move.getFrom(move), Move.getTo(move),
+                            Move.getPromotion(move));
+                } else {
+                    board.movePiece(Move.getFrom(move), Move.getTo(move));
+                }
+            } catch (BoardException e) {
+                throw new IllegalArgumentException("Illegal move: " + Move.toString(move), e);
+            }
+        }
+        return board;
+    }
+
+    /**
+     * Add a move to the end of the game
+     * @param move
+     */
+    public void addMove(int move) {
+        if (moveCount == moves.length) {
+            int[] grown = new int[moves.length * 2];
+            System.arraycopy(moves, 0, grown, 0, moveCount);
+            moves = grown;
+        }
+        moves[moveCount++] = move;
+    }
+
+    /**
+     * Get a move
+     * @param index The number of moves made before it
+     * @return The move
+     */
+    public int getMove(int index) {
+        if (index < 0 || index >= moveCount) {
+            throw new IndexOutOfBoundsException("Invalid move index: " + index);
+        }
+        return moves[index];
+    }
+
+    /**
+     * Get the number of moves made
+     * @return The number of moves
+     */
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    /**
+     * Get the FEN of the start position
+     * @return The FEN, or null for the initial position
+     */
+    public String getStartFen() {
+        return startFen;
+    }
+
+    /**
+     * Set the FEN of the start position
+     * @param startFen The FEN, or null for the initial position
+     */
+    public void setStartFen(String startFen) {
+        this.startFen = startFen;
+    }
+
+    /**
+     * Get the name of the white player
+     * @return The name
+     */
+    public String getWhite() {
+        return white;
+    }
+
+    /**
+     * Set the name of the white player
+     * @param white
+     */
+    public void setWhite(String white) {
+        this.white = white == null ? "" : white;
+    }
+
+    /**
+     * Get the name of the black player
+     * @return The name
+     */
+    public String getBlack() {
+        return black;
+    }
+
+    /**
+     * Set the name of the black player
+     * @param black
+     */
+    public void setBlack(String black) {
+        this.black = black == null ? "" : black;
+    }
+
+    /**
+     * Get the time used by the white player
+     * @return The time in milliseconds
+     */
+    public long getWhiteTime() {
+        return whiteTime;
+    }
+
+    /**
+     * Set the time used by the white player
+     * @param whiteTime The time in milliseconds
+     */
+    public void setWhiteTime(long whiteTime) {
+        this.whiteTime = whiteTime;
+    }
+
+    /**
+     * Get the time used by the black player
+     * @return The time in milliseconds
+     */
+    public long getBlackTime() {
+        return blackTime;
+    }
+
+    /**
+     * Set the time used by the black player
+     * @param blackTime The time in milliseconds
+     */
+    public void setBlackTime(long blackTime) {
+        this.blackTime = blackTime;
+    }
+
+}
@@ -0,0 +1,677 @@
+/*
+ * GameDatabase.java
+ *
+ */
+
+package no.hist.aitel.chess.game;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import no.hist.aitel.chess.board.BitBoard;
+import no.hist.aitel.chess.board.Board;
+import no.hist.aitel.chess.pgn.PgnListener;
+import no.hist.aitel.chess.pgn.PgnReader;
+
+/**
+ * A database of games in two files. The games are appended one after another in the binary
+ * game format to the database file, and never change once written, so a game is identified by
+ * its offset in the file. An index file next to it holds an entry for each position of each
+ * game, the Zobrist hash of the position and the offset of the game, sorted by hash. Both
+ * files are memory mapped when read, so finding the games which reach a position is a binary
+ * search in the index which doesn't load the database onto the heap.
+ * Added games are indexed in memory, where they are searched along with the index file, and
+ * merged into the index file when the database is closed or there are many of them. Games
+ * added after the last merge are indexed again when the database is opened, and a game only
+ * partly written at the end of the file is dropped. Any other invalid game fails the open, so
+ * the games after it are never lost.
+ * @author martin
+ */
+
+public class GameDatabase {
+
+    private static final byte[] INDEX_MAGIC = {'C', 'H', 'I', '1'};
+    private static final String INDEX_SUFFIX = ".idx";
+
+    /**
+     * Index header: magic, indexed length of the database file, number of games and number
+     * of entries
+     */
+    private static final int HEADER_SIZE = 4 + 8 + 8 + 8;
+    private static final int ENTRY_SIZE = 16;
+
+    /**
+     * Entries in each mapped segment of the index, the files are mapped in segments since a
+     * mapping can't be larger than 2 GB
+     */
+    private static final int SEGMENT_ENTRIES = 1 << 26;
+
+    /**
+     * Bytes in each mapped segment of the database file. Segments overlap by the size of the
+     * largest possible game, so every game is within the segment of its offset.
+     */
+    private static final int SEGMENT_SIZE = 1 << 30;
+    private static final int MAX_GAME_SIZE = 4 + 2 * (2 + 0xFFFF) + 16 + 1 + 0xFF + 2
+            + 2 * 0xFFFF;
+
+    /**
+     * Most entries kept in memory before they are merged into the index file
+     */
+    private static final int MAX_PENDING = 1 << 22;
+
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    /**
+     * Position games without a start FEN start from, copied for each game
+     */
+    private static final BitBoard START = new BitBoard(
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+
+    private File file;
+    private File indexFile;
+    private RandomAccessFile data;
+    private FileChannel channel;
+    private long size;
+    private long games = 0;
+
+    /**
+     * Length of the database file with entries, in the index file or pending
+     */
+    private long indexed = 0;
+
+    /**
+     * The index file, mapped when first searched
+     */
+    private long entries = 0;
+    private MappedByteBuffer[] index = null;
+
+    /**
+     * The database file, mapped when a game is first read and again after games are added
+     */
+    private MappedByteBuffer[] segments = null;
+
+    /**
+     * Entries not merged into the index file yet, in the order they were added
+     */
+    private long[] pendingHashes = new long[1024];
+    private long[] pendingOffsets = new long[1024];
+    private int pending = 0;
+    private boolean sorted = true;
+
+    /**
+     * Opens a database, it is created if the file doesn't exist
+     * @param file The database file, the index is stored in the same directory with the suffix
+     * .idx
+     * @throws IOException If the files can't be opened, aren't a database or have an invalid
+     * game before the end
+     */
+    public GameDatabase(File file) throws IOException {
+        this.file = file;
+        indexFile = new File(file.getPath() + INDEX_SUFFIX);
+        data = new RandomAccessFile(file, "rw");
+        channel = data.getChannel();
+        size = channel.size();
+
+        if (indexFile.exists()) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            FileInputStream in = new FileInputStream(indexFile);
+            try {
+                FileChannel indexChannel = in.getChannel();
+                while (header.hasRemaining()) {
+                    if (indexChannel.read(header) == -1) {
+                        throw new IOException("Not a game index: " + indexFile);
+                    }
+                }
+                header.flip();
+                for (int i = 0; i < INDEX_MAGIC.length; i++) {
+                    if (header.get() != INDEX_MAGIC[i]) {
+                        throw new IOException("Not a game index: " + indexFile);
+                    }
+                }
+                indexed = header.getLong();
+                games = header.getLong();
+                entries = header.getLong();
+                if (indexed > size || indexFile.length() != HEADER_SIZE + entries * ENTRY_SIZE) {
+                    throw new IOException("Index doesn't match the database: " + indexFile);
+                }
+            } catch (IOException e) {
+                data.close();
+                throw e;
+            } finally {
+                in.close();
+            }
+        }
+
+        // Games added after the last flush
+        try {
+            while (indexed < size) {
+                Game game;
+                try {
+                    game = readGame(indexed);
+                } catch (EOFException e) {
+                    // A game only partly written when the program stopped
+                    truncate();
+                    break;
+                }
+                addEntries(game, indexed);
+                games++;
+                if (pending >= MAX_PENDING) {
+                    flush();
+                }
+            }
+        } catch (IOException e) {
+            data.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Add a game to the end of the database
+     * @param game
+     * @return The offset of the game, which identifies it
+     * @throws IOException
+     */
+    public long add(Game game) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(GameFormat.getSize(game));
+        GameFormat.write(game, buffer);
+        buffer.flip();
+        long offset = size;
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, offset + buffer.position());
+        }
+        size += buffer.limit();
+        segments = null;
+        addEntries(game, offset);
+        games++;
+        if (pending >= MAX_PENDING) {
+            flush();
+        }
+        return offset;
+    }
+
+    /**
+     * Get a game
+     * @param offset The offset returned by add() or find()
+     * @return The game
+     * @throws IOException If there is no game at the offset
+     */
+    public Game getGame(long offset) throws IOException {
+        return readGame(offset);
+    }
+
+    /**
+     * Find the games which reach the position of a board
+     * @param board
+     * @return The offsets of the games, in the order they were added
+     * @throws IOException
+     */
+    public long[] find(Board board) throws IOException {
+        return find(board.getHash());
+    }
+
+    /**
+     * Find the games which reach a position
+     * @param bits
+     * @return The offsets of the games, in the order they were added
+     * @throws IOException
+     */
+    public long[] find(BitBoard bits) throws IOException {
+        return find(bits.getHash());
+    }
+
+    /**
+     * Find the games which reach a position
+     * @param hash The Zobrist hash of the position
+     * @return The offsets of the games, in the order they were added
+     * @throws IOException
+     */
+    public long[] find(long hash) throws IOException {
+        if (index == null) {
+            index = mapIndex();
+        }
+        sortPending();
+        // First entry with the hash
+        long low = 0, high = entries;
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            if (getHash(middle) < hash) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        int count = 0;
+        long[] offsets = new long[16];
+        for (long i = low; i < entries && getHash(i) == hash; i++) {
+            count = addOffset(offsets, count, getOffset(i));
+            offsets = grow(offsets, count);
+        }
+
+        // The pending games were added after those in the index file
+        int first = 0, last = pending;
+        while (first < last) {
+            int middle = (first + last) >>> 1;
+            if (pendingHashes[middle] < hash) {
+                first = middle + 1;
+            } else {
+                last = middle;
+            }
+        }
+        for (int i = first; i < pending && pendingHashes[i] == hash; i++) {
+            count = addOffset(offsets, count, pendingOffsets[i]);
+            offsets = grow(offsets, count);
+        }
+        long[] found = new long[count];
+        System.arraycopy(offsets, 0, found, 0, count);
+        return found;
+    }
+
+    /**
+     * Get the number of games
+     * @return The number of games
+     */
+    public long getGameCount() {
+        return games;
+    }
+
+    /**
+     * Get the size of the database file
+     * @return The size in bytes
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Merge the entries of added games into the index file
+     * @throws IOException
+     */
+    public void flush() throws IOException {
+        if (pending == 0) {
+            return;
+        }
+        sortPending();
+        if (index == null && entries > 0) {
+            index = mapIndex();
+        }
+
+        File temporary = new File(indexFile.getPath() + ".tmp");
+        FileOutputStream out = new FileOutputStream(temporary);
+        try {
+            FileChannel output = out.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            buffer.put(INDEX_MAGIC);
+            buffer.putLong(indexed);
+            buffer.putLong(games);
+            buffer.putLong(entries + pending);
+
+            // Both are sorted by hash and then offset, and added games come after the old ones
+            long i = 0;
+            int j = 0;
+            while (i < entries || j < pending) {
+                if (j == pending || (i < entries && getHash(i) <= pendingHashes[j])) {
+                    buffer.putLong(getHash(i));
+                    buffer.putLong(getOffset(i));
+                    i++;
+                } else {
+                    buffer.putLong(pendingHashes[j]);
+                    buffer.putLong(pendingOffsets[j]);
+                    j++;
+                }
+                if (buffer.remaining() < ENTRY_SIZE) {
+                    write(output, buffer);
+                }
+            }
+            write(output, buffer);
+            channel.force(false);
+            output.force(false);
+        } finally {
+            out.close();
+        }
+        index = null;
+        if (!temporary.renameTo(indexFile)) {
+            indexFile.delete();
+            if (!temporary.renameTo(indexFile)) {
+                throw new IOException("Can't replace index: " + indexFile);
+            }
+        }
+        entries += pending;
+        pending = 0;
+    }
+
+    /**
+     * Flush the index and close the database
+     * @throws IOException
+     */
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            data.close();
+            index = null;
+            segments = null;
+        }
+    }
+
+    /**
+     * Import the games of PGN files into a database
+     * @param args The database and the PGN files
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: GameDatabase <database> <pgn file>...");
+            System.exit(2);
+        }
+        GameDatabase database = new GameDatabase(new File(args[0]));
+        long start = System.currentTimeMillis();
+        Importer importer = new Importer(database);
+        try {
+            for (int i = 1; i < args.length; i++) {
+                FileInputStream in = new FileInputStream(args[i]);
+                try {
+                    new PgnReader(in.getChannel()).read(importer);
+                } finally {
+                    in.close();
+                }
+                if (importer.getException() != null) {
+                    throw importer.getException();
+                }
+            }
+        } finally {
+            database.close();
+        }
+        long time = Math.max(System.currentTimeMillis() - start, 1);
+        System.out.println("Imported " + importer.getImported() + " games, skipped "
+                + importer.getSkipped() + " in " + time + " ms (" + importer.getImported() * 1000
+                / time + " games/s), " + database.getGameCount() + " games in "
+                + database.getSize() / 1024 + " kB");
+    }
+
+    /**
+     * Drop everything in the database file after the last game read
+     * @throws IOException
+     */
+    private void truncate() throws IOException {
+        segments = null;
+        channel.truncate(indexed);
+        size = indexed;
+    }
+
+    /**
+     * Add an entry for each position of a game
+     * @param game
+     * @param offset The offset of the game, which is the first not indexed
+     */
+    private void addEntries(Game game, long offset) {
+        BitBoard bits = game.getStartFen() == null ? new BitBoard(START)
+                : new BitBoard(game.getStartFen());
+        addEntry(bits.getHash(), offset);
+        for (int i = 0; i < game.getMoveCount(); i++) {
+            bits.makeMove(game.getMove(i));
+            addEntry(bits.getHash(), offset);
+        }
+        indexed = offset + GameFormat.getSize(game);
+    }
+
+    /**
+     * Add an entry to the pending entries
+     * @param hash
+     * @param offset
+     */
+    private void addEntry(long hash, long offset) {
+        if (pending == pendingHashes.length) {
+            long[] hashes = new long[pending * 2];
+            long[] offsets = new long[pending * 2];
+            System.arraycopy(pendingHashes, 0, hashes, 0, pending);
+            System.arraycopy(pendingOffsets, 0, offsets, 0, pending);
+            pendingHashes = hashes;
+            pendingOffsets = offsets;
+        }
+        pendingHashes[pending] = hash;
+        pendingOffsets[pending] = offset;
+        pending++;
+        sorted = false;
+    }
+
+    /**
+     * Sort the pending entries by hash and then offset, if entries were added since they
+     * were last sorted
+     */
+    private void sortPending() {
+        if (!sorted) {
+            sort(pendingHashes, pendingOffsets, 0, pending - 1);
+            sorted = true;
+        }
+    }
+
+    /**
+     * Add a game offset to those found, unless it was the last one added
+     * @param offsets
+     * @param count The number of offsets found
+     * @param offset
+     * @return The new number of offsets
+     */
+    private static int addOffset(long[] offsets, int count, long offset) {
+        // A game which repeats the position has an entry for each time
+        if (count > 0 && offsets[count - 1] == offset) {
+            return count;
+        }
+        offsets[count] = offset;
+        return count + 1;
+    }
+
+    /**
+     * Make room for one more offset
+     * @param offsets
+     * @param count The number of offsets found
+     * @return The offsets, or a larger copy of them if they are full
+     */
+    private static long[] grow(long[] offsets, int count) {
+        if (count < offsets.length) {
+            return offsets;
+        }
+        long[] grown = new long[count * 2];
+        System.arraycopy(offsets, 0, grown, 0, count);
+        return grown;
+    }
+
+    /**
+     * Read a game from the mapped database file
+     * @param offset
+     * @return The game
+     * @throws IOException If there is no game at the offset
+     */
+    private Game readGame(long offset) throws IOException {
+        if (offset < 0 || offset >= size) {
+            throw new IOException("No game at offset " + offset);
+        }
+        if (segments == null) {
+            segments = new MappedByteBuffer[(int) ((size - 1) / SEGMENT_SIZE + 1)];
+        }
+        int segment = (int) (offset / SEGMENT_SIZE);
+        if (segments[segment] == null) {
+            long start = (long) segment * SEGMENT_SIZE;
+            segments[segment] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                    Math.min(size - start, (long) SEGMENT_SIZE + MAX_GAME_SIZE));
+        }
+        ByteBuffer buffer = segments[segment].duplicate();
+        buffer.position((int) (offset - (long) segment * SEGMENT_SIZE));
+        return GameFormat.read(buffer);
+    }
+
+    /**
+     * Memory map the index file
+     * @return The segments of the entries
+     * @throws IOException
+     */
+    private MappedByteBuffer[] mapIndex() throws IOException {
+        MappedByteBuffer[] mapped = new MappedByteBuffer[(int) ((entries + SEGMENT_ENTRIES - 1)
+                / SEGMENT_ENTRIES)];
+        if (mapped.length == 0) {
+            return mapped;
+        }
+        RandomAccessFile in = new RandomAccessFile(indexFile, "r");
+        try {
+            for (int i = 0; i < mapped.length; i++) {
+                long first = (long) i * SEGMENT_ENTRIES;
+                long count = Math.min(entries - first, SEGMENT_ENTRIES);
+                mapped[i] = in.getChannel().map(FileChannel.MapMode.READ_ONLY,
+                        HEADER_SIZE + first * ENTRY_SIZE, count * ENTRY_SIZE);
+            }
+        } finally {
+            in.close();
+        }
+        return mapped;
+    }
+
+    /**
+     * Get the hash of an index entry
+     * @param entry
+     * @return The hash
+     */
+    private long getHash(long entry) {
+        return index[(int) (entry / SEGMENT_ENTRIES)].getLong(
+                (int) (entry % SEGMENT_ENTRIES) * ENTRY_SIZE);
+    }
+
+    /**
+     * Get the game offset of an index entry
+     * @param entry
+     * @return The offset
+     */
+    private long getOffset(long entry) {
+        return index[(int) (entry / SEGMENT_ENTRIES)].getLong(
+                (int) (entry % SEGMENT_ENTRIES) * ENTRY_SIZE + 8);
+    }
+
+    /**
+     * Write the contents of a buffer and clear it
+     * @param output
+     * @param buffer
+     * @throws IOException
+     */
+    private static void write(FileChannel output, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            output.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Sort entries by hash and then offset, with quicksort
+     * @param hashes
+     * @param offsets
+     * @param low First entry to sort
+     * @param high Last entry to sort
+     */
+    private static void sort(long[] hashes, long[] offsets, int low, int high) {
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            long hash = hashes[middle], offset = offsets[middle];
+            int i = low, j = high;
+            while (i <= j) {
+                while (hashes[i] < hash || (hashes[i] == hash && offsets[i] < offset)) {
+                    i++;
+                }
+                while (hashes[j] > hash || (hashes[j] == hash && offsets[j] > offset)) {
+                    j--;
+                }
+                if (i <= j) {
+                    long swap = hashes[i];
+                    hashes[i] = hashes[j];
+                    hashes[j] = swap;
+                    swap = offsets[i];
+                    offsets[i] = offsets[j];
+                    offsets[j] = swap;
+                    i++;
+                    j--;
+                }
+            }
+            // Recurse into the smaller part
+            if (j - low < high - i) {
+                sort(hashes, offsets, low, j);
+                low = i;
+            } else {
+                sort(hashes, offsets, i, high);
+                high = j;
+            }
+        }
+    }
+
+    /**
+     * Adds the games read from PGN to a database, skipping games with illegal moves
+     */
+    private static class Importer implements PgnListener {
+
+        private GameDatabase database;
+        private Game game;
+        private boolean valid;
+        private long imported = 0;
+        private long skipped = 0;
+        private IOException exception = null;
+
+        public Importer(GameDatabase database) {
+            this.database = database;
+        }
+
+        public void startGame() {
+            game = new Game();
+            valid = true;
+        }
+
+        public void tag(String name, String value) {
+            if (name.equals("White")) {
+                game.setWhite(value);
+            } else if (name.equals("Black")) {
+                game.setBlack(value);
+            } else if (name.equals("FEN")) {
+                game.setStartFen(value);
+            }
+        }
+
+        public void move(BitBoard bits, int move) {
+            game.addMove(move);
+        }
+
+        public void error(String message, BitBoard bits) {
+            valid = false;
+        }
+
+        public void endGame(String result) {
+            if (!valid || exception != null) {
+                skipped++;
+                return;
+            }
+            try {
+                database.add(game);
+                imported++;
+            } catch (IOException e) {
+                exception = e;
+            } catch (IllegalArgumentException e) {
+                // Too long for the format
+                skipped++;
+            }
+        }
+
+        public long getImported() {
+            return imported;
+        }
+
+        public long getSkipped() {
+            return skipped;
+        }
+
+        public IOException getException() {
+            return exception;
+        }
+    }
+
+}
@@ -0,0 +1,260 @@
+/*
+ * GameFormat.java
+ *
+ */
+
+package no.hist.aitel.chess.game;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import no.hist.aitel.chess.board.BitBoard;
+import no.hist.aitel.chess.board.Move;
+import no.hist.aitel.chess.board.MoveGenerator;
+import no.hist.aitel.chess.board.MoveList;
+
+/**
+ * Compact binary format for games. A game is stored as a header with the players and their
+ * clocks, the start position and the moves in their 16 bit encoding, all big-endian:
+ * <pre>
+ * magic      4 bytes, "CHG1"
+ * white      u16 length and UTF-8
+ * black      u16 length and UTF-8
+ * clocks     i64 white and i64 black, time used in milliseconds
+ * start      u8 length and ASCII FEN, length 0 for the initial position
+ * moves      u16 count and u16 each
+ * </pre>
+ * A game from the initial position takes 27 bytes besides the names and two bytes per move,
+ * and games can be written one after another into the same buffer. Moves are checked against
+ * the rules when read, so a corrupt file never gives a board in an impossible position.
+ * @author martin
+ */
+
+public class GameFormat {
+
+    private static final byte[] MAGIC = {'C', 'H', 'G', '1'};
+    private static final int MAX_LENGTH = 0xFFFF;
+    private static final int MAX_FEN_LENGTH = 0xFF;
+
+    /**
+     * Position games without a start FEN start from, copied for each game
+     */
+    private static final BitBoard START = new BitBoard(
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+
+    // Don't allow instances of this class
+    private GameFormat() {
+    }
+
+    /**
+     * Get the number of bytes a game is written as
+     * @param game
+     * @return The size in bytes
+     */
+    public static int getSize(Game game) {
+        return MAGIC.length + 2 + getBytes(game.getWhite()).length + 2
+                + getBytes(game.getBlack()).length + 16 + 1 + getFenLength(game) + 2
+                + game.getMoveCount() * 2;
+    }
+
+    /**
+     * Write a game at the position of a buffer
+     * @param game
+     * @param buffer The buffer, with at least getSize() bytes remaining
+     * @throws IllegalArgumentException If a name, the FEN or the game is too long for the
+     * format
+     */
+    public static void write(Game game, ByteBuffer buffer) {
+        if (game.getMoveCount() > MAX_LENGTH) {
+            throw new IllegalArgumentException("Too many moves: " + game.getMoveCount());
+        }
+        buffer.put(MAGIC);
+        putString(buffer, getBytes(game.getWhite()));
+        putString(buffer, getBytes(game.getBlack()));
+        buffer.putLong(game.getWhiteTime());
+        buffer.putLong(game.getBlackTime());
+        int length = getFenLength(game);
+        buffer.put((byte) length);
+        for (int i = 0; i < length; i++) {
+            buffer.put((byte) game.getStartFen().charAt(i));
+        }
+        buffer.putShort((short) game.getMoveCount());
+        for (int i = 0; i < game.getMoveCount(); i++) {
+            buffer.putShort((short) game.getMove(i));
+        }
+    }
+
+    /**
+     * Read a game from the position of a buffer, leaving the buffer after it
+     * @param buffer
+     * @return The game
+     * @throws IOException If the data isn't a game or has an illegal move, EOFException if
+     * the game is truncated
+     */
+    public static Game read(ByteBuffer buffer) throws IOException {
+        try {
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (buffer.get() != MAGIC[i]) {
+                    throw new IOException("Not a game");
+                }
+            }
+            Game game = new Game();
+            game.setWhite(getString(buffer));
+            game.setBlack(getString(buffer));
+            game.setWhiteTime(buffer.getLong());
+            game.setBlackTime(buffer.getLong());
+
+            int length = buffer.get() & 0xFF;
+            BitBoard bits = new BitBoard(START);
+            if (length > 0) {
+                char[] fen = new char[length];
+                for (int i = 0; i < length; i++) {
+                    fen[i] = (char) (buffer.get() & 0xFF);
+                }
+                game.setStartFen(new String(fen));
+                try {
+                    bits = new BitBoard(game.getStartFen());
+                } catch (IllegalArgumentException e) {
+                    throw new IOException(e.getMessage());
+                }
+            }
+
+            int count = buffer.getShort() & 0xFFFF;
+            MoveList list = new MoveList();
+            for (int i = 0; i < count; i++) {
+                int move = buffer.getShort() & 0xFFFF;
+                MoveGenerator.generateLegalMoves(bits, list);
+                if (!list.contains(move)) {
+                    throw new IOException("Illegal move " + (i + 1) + ": "
+                            + Move.toString(move) + " in " + bits.toFen());
+                }
+                bits.makeMove(move);
+                game.addMove(move);
+            }
+            return game;
+        } catch (BufferUnderflowException e) {
+            throw new EOFException("Game is truncated");
+        } catch (RuntimeException e) {
+            // Corrupt data must never escape as anything but an IOException
+            throw new IOException("Not a game: " + e, e);
+        }
+    }
+
+    /**
+     * Write a game to a file, replacing its contents
+     * @param game
+     * @param file
+     * @throws IOException
+     */
+    public static void save(Game game, File file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(getSize(game));
+        write(game, buffer);
+        buffer.flip();
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            FileChannel channel = out.getChannel();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Read a game from a file
+     * @param file
+     * @return The game
+     * @throws IOException If the file can't be read or isn't a game
+     */
+    public static Game load(File file) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            FileChannel channel = in.getChannel();
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Not a game: " + file);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) == -1) {
+                    break;
+                }
+            }
+            buffer.flip();
+            return read(buffer);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Get the length of the start FEN of a game
+     * @param game
+     * @return The length, 0 for the initial position
+     * @throws IllegalArgumentException If the FEN is too long or not ASCII
+     */
+    private static int getFenLength(Game game) {
+        String fen = game.getStartFen();
+        if (fen == null) {
+            return 0;
+        }
+        if (fen.length() == 0 || fen.length() > MAX_FEN_LENGTH) {
+            throw new IllegalArgumentException("Invalid FEN length: " + fen.length());
+        }
+        for (int i = 0; i < fen.length(); i++) {
+            if (fen.charAt(i) > 0x7F) {
+                throw new IllegalArgumentException("Invalid FEN: " + fen);
+            }
+        }
+        return fen.length();
+    }
+
+    /**
+     * Write a string with its length
+     * @param buffer
+     * @param bytes The string as UTF-8
+     * @throws IllegalArgumentException If it is too long
+     */
+    private static void putString(ByteBuffer buffer, byte[] bytes) {
+        if (bytes.length > MAX_LENGTH) {
+            throw new IllegalArgumentException("Name is too long: " + bytes.length + " bytes");
+        }
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    /**
+     * Read a string written with putString()
+     * @param buffer
+     * @return The string
+     */
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        try {
+            return new String(bytes, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Get a string as UTF-8
+     * @param s
+     * @return The bytes
+     */
+    private static byte[] getBytes(String s) {
+        try {
+            return s.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
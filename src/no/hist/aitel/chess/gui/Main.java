@@ -8,6 +8,7 @@ import java.awt.event.ActionListener;
 import java.awt.event.ItemEvent;
 import java.awt.event.ItemListener;
 import java.awt.event.KeyEvent;
+import java.io.IOException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.JFrame;
@@ -16,6 +17,8 @@ import javax.swing.JMenuBar;
 import javax.swing.JMenuItem;
 import javax.swing.JOptionPane;
 import javax.swing.KeyStroke;
+import no.hist.aitel.chess.board.Board;
+import no.hist.aitel.chess.game.Game;
 
 /**
  *
@@ -25,7 +28,7 @@ public class Main implements ActionListener, ItemListener {
     private static guiEngine mainWindow = new guiEngine("Chess");
     private static JFrame frame = mainWindow;
     private saveAndLoad saveAndLoad = mainWindow.getSaveAndLoad();
-    private String[] savedString = new String[5];   
+    private String[] savedString = new String[1];   
 
 
     /**
@@ -118,13 +121,18 @@ public class Main implements ActionListener, ItemListener {
              if (JOptionPane.YES_OPTION == JOptionPane.showConfirmDialog(null, "Are you sure you want to save the game?\nPrevious save data will be lost.")) {
                  saveAndLoad.saveIntArray("./src/no/hist/aitel/chess/resources//x_coords.txt", mainWindow.getChessboard().getXcoords());
                  saveAndLoad.saveIntArray("./src/no/hist/aitel/chess/resources//y_coords.txt", mainWindow.getChessboard().getYcoords());
-                 saveAndLoad.saveBoard("./src/no/hist/aitel/chess/resources//internal.txt", mainWindow.getBoardObj());
-                 savedString[0] = Integer.toString(mainWindow.getTimeUsedP1());
-                 savedString[1] = Integer.toString(mainWindow.getTimeUsedP2());
-                 savedString[2] = mainWindow.getCenterTextArea();
-                 savedString[3] = mainWindow.getP1name();
-                 savedString[4] = mainWindow.getP2name();                 
+                 savedString[0] = mainWindow.getCenterTextArea();
                  saveAndLoad.saveStringArray("./src/no/hist/aitel/chess/resources/stringArray.txt", savedString);
+                 Game game = Game.fromBoard(mainWindow.getBoardObj());
+                 game.setWhite(mainWindow.getP1name());
+                 game.setBlack(mainWindow.getP2name());
+                 game.setWhiteTime(mainWindow.getTimeUsedP1() * 1000L);
+                 game.setBlackTime(mainWindow.getTimeUsedP2() * 1000L);
+                 try {
+                     saveAndLoad.saveGame("./src/no/hist/aitel/chess/resources/game.chg", game);
+                 } catch (IOException ex) {
+                     JOptionPane.showMessageDialog(null, "Could not save the game:\n" + ex.getMessage());
+                 }
              }
         }
         else if(e.getActionCommand().equals("Load game")) {
@@ -132,15 +140,18 @@ public class Main implements ActionListener, ItemListener {
                 try {
                     mainWindow.setXcoords(saveAndLoad.loadIntArray("./src/no/hist/aitel/chess/resources/x_coords.txt"));
                     mainWindow.setYcoords(saveAndLoad.loadIntArray("./src/no/hist/aitel/chess/resources/y_coords.txt"));
-                    mainWindow.setBoardObj(saveAndLoad.loadBoard("./src/no/hist/aitel/chess/resources/internal.txt"));
+                    Game game = saveAndLoad.loadGame("./src/no/hist/aitel/chess/resources/game.chg");
+                    mainWindow.setBoardObj(game.toBoard());
                     savedString = saveAndLoad.loadStringArray("./src/no/hist/aitel/chess/resources/stringArray.txt");
-                    mainWindow.setTimeUsed(Integer.parseInt(savedString[0]), Integer.parseInt(savedString[1]));
-                    mainWindow.setCenterTextArea(savedString[2]);
-                    mainWindow.setP1name(savedString[3]);
-                    mainWindow.setP2name(savedString[4]);
+                    mainWindow.setTimeUsed((int) (game.getWhiteTime() / 1000), (int) (game.getBlackTime() / 1000));
+                    mainWindow.setCenterTextArea(savedString[0]);
+                    mainWindow.setP1name(game.getWhite());
+                    mainWindow.setP2name(game.getBlack());
                     mainWindow.stopTimers();
                 } catch (ClassNotFoundException ex) {
                     Logger.getLogger(Main.class.getName()).log(Level.SEVERE, null, ex);
+                } catch (IOException ex) {
+                    JOptionPane.showMessageDialog(null, "Could not load the game:\n" + ex.getMessage());
                 }
             }
         }
@@ -167,7 +178,7 @@ public class Main implements ActionListener, ItemListener {
                 try {
                     mainWindow.setXcoords(saveAndLoad.loadIntArray("./src/no/hist/aitel/chess/resources/new_game_x_coords.txt"));
                     mainWindow.setYcoords(saveAndLoad.loadIntArray("./src/no/hist/aitel/chess/resources/new_game_y_coords.txt"));
-                    mainWindow.setBoardObj(saveAndLoad.loadBoard("./src/no/hist/aitel/chess/resources/new_game_internal.txt"));
+                    mainWindow.setBoardObj(new Board());
                     mainWindow.cleanup();
                    
                 } catch (ClassNotFoundException ex) {
@@ -210,7 +210,6 @@ public class guiEngine extends JFrame implements MouseListener, MouseMotionListe
     private void initNewGameSave() {
         saveAndLoad.saveIntArray("./src/no/hist/aitel/chess/resources/new_game_x_coords.txt", getChessboard().getXcoords());
         saveAndLoad.saveIntArray("./src/no/hist/aitel/chess/resources/new_game_y_coords.txt", getChessboard().getYcoords());
-        saveAndLoad.saveBoard("./src/no/hist/aitel/chess/resources/new_game_internal.txt", getBoardObj());
     }
     /**
      * Returns the saveAndLoad object
@@ -438,13 +437,14 @@ public class guiEngine extends JFrame implements MouseListener, MouseMotionListe
             String from = board.getNotation(fromPos);
             String to = board.getNotation(toPos);
             try {
-                if(board.getPiece(fromPos).getType() == PAWN) {
+                boolean pawnMove = board.getPiece(fromPos).getType() == PAWN;
+                if(pawnMove) {
                     checkEnPassant();
                 }
                 capturedPiece = board.getPiece(toPos).getId();              
                 board.movePiece(fromPos, toPos);
                
-                if(board.getPiece(toPos).getType() == PAWN) {
+                if(pawnMove) {
                     checkPromotion();
                 }
                 if(board.getPiece(toPos).getType() == KING) {
@@ -653,38 +653,38 @@ public class guiEngine extends JFrame implements MouseListener, MouseMotionListe
                 if(toPos >= 56 && toPos <= 63) {
                     if(picked.equals("queen")) {
                         boardGui.getStartPos().setPromotedImage(images[3], board.getPiece(toPos).getId());
-                        board.getPiece(toPos).setType(QUEEN);
+                        board.promotePiece(toPos, QUEEN);
                     }
                     else if(picked.equals("rook")) {
                         boardGui.getStartPos().setPromotedImage(images[0], board.getPiece(toPos).getId());
-                        board.getPiece(toPos).setType(ROOK);
+                        board.promotePiece(toPos, ROOK);
                     }
                     else if(picked.equals("knight")) {
                         boardGui.getStartPos().setPromotedImage(images[1], board.getPiece(toPos).getId());
-                        board.getPiece(toPos).setType(KNIGHT);
+                        board.promotePiece(toPos, KNIGHT);
                     }
                     else if(picked.equals("bishop")) {
                         boardGui.getStartPos().setPromotedImage(images[2], board.getPiece(toPos).getId());
-                        board.getPiece(toPos).setType(BISHOP);
+                        board.promotePiece(toPos, BISHOP);
                     }
                 }
 
                 else if(toPos <= 7 && toPos >= 0) {
                     if(picked.equals("queen")) {
                         boardGui.getStartPos().setPromotedImage(images[59], board.getPiece(toPos).getId());
-                        board.getPiece(toPos).setType(QUEEN);
+                        board.promotePiece(toPos, QUEEN);
                     }
                     else if(picked.equals("rook")) {
                         boardGui.getStartPos().setPromotedImage(images[56], board.getPiece(toPos).getId());
-                        board.getPiece(toPos).setType(ROOK);
+                        board.promotePiece(toPos, ROOK);
                     }
                     else if(picked.equals("knight")) {
                         boardGui.getStartPos().setPromotedImage(images[57], board.getPiece(toPos).getId());
-                        board.getPiece(toPos).setType(KNIGHT);
+                        board.promotePiece(toPos, KNIGHT);
                     }
                     else if(picked.equals("bishop")) {
                         boardGui.getStartPos().setPromotedImage(images[58], board.getPiece(toPos).getId());
-                        board.getPiece(toPos).setType(BISHOP);
+                        board.promotePiece(toPos, BISHOP);
                     }
                 }
                 repaint();
@@ -696,7 +696,7 @@ public class guiEngine extends JFrame implements MouseListener, MouseMotionListe
                 try {                    
                     setXcoords(saveAndLoad.loadIntArray("./src/no/hist/aitel/chess/resources/new_game_x_coords.txt"));
                     setYcoords(saveAndLoad.loadIntArray("./src/no/hist/aitel/chess/resources/new_game_y_coords.txt"));
-                    setBoardObj(saveAndLoad.loadBoard("./src/no/hist/aitel/chess/resources/new_game_internal.txt"));
+                    setBoardObj(new Board());
                     cleanup();
                     canPlay = true;
                 } catch (ClassNotFoundException ex) {
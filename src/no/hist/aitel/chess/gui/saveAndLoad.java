@@ -2,12 +2,14 @@
 
 package no.hist.aitel.chess.gui;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
-import no.hist.aitel.chess.board.Board;
+import no.hist.aitel.chess.game.Game;
+import no.hist.aitel.chess.game.GameFormat;
 
 /**
  *
@@ -83,38 +85,22 @@ public class saveAndLoad {
         return null;
     }
     /**
-     * Serializes a given board object and stores it to the given file
+     * Stores the board and players of a game to the given file in the binary game format
      * @param filename
-     * @param save
-     */  
-    public void saveBoard(String filename, Board save) {
-        try {
-            FileOutputStream fos = new FileOutputStream(filename);            
-            ObjectOutputStream out = new ObjectOutputStream(fos);
-            out.writeObject(save);
-            out.flush();
-            out.close();
-        }
-        catch (IOException e) {            
-        }
+     * @param game
+     * @throws IOException
+     */
+    public void saveGame(String filename, Game game) throws IOException {
+        GameFormat.save(game, new File(filename));
     }
     /**
-     * Loads a serialized board object
+     * Loads a game stored with saveGame()
      * @param filename
-     * @return
-     * @throws java.lang.ClassNotFoundException
+     * @return The game
+     * @throws IOException If the file can't be read or isn't a valid game
      */
-    public Board loadBoard(String filename) throws ClassNotFoundException {
-        try {
-            FileInputStream fis = new FileInputStream(filename);            
-            ObjectInputStream in = new ObjectInputStream(fis);
-            Board load = (Board)in.readObject();
-            in.close();
-            return load;
-        }
-        catch (IOException e) {            
-        }
-        return null;
+    public Game loadGame(String filename) throws IOException {
+        return GameFormat.load(new File(filename));
     }
 
 }
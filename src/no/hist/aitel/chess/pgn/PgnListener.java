@@ -0,0 +1,52 @@
+/*
+ * PgnListener.java
+ *
+ */
+
+package no.hist.aitel.chess.pgn;
+
+import no.hist.aitel.chess.board.BitBoard;
+
+/**
+ * Receives the games read by PgnReader, one call for each part of a game as it is read.
+ * @author martin
+ */
+
+public interface PgnListener {
+
+    /**
+     * A new game starts
+     */
+    void startGame();
+
+    /**
+     * A tag pair of the current game
+     * @param name
+     * @param value
+     */
+    void tag(String name, String value);
+
+    /**
+     * A legal move of the current game, before it is made
+     * @param bits The position the move is made in, which is changed after the call and
+     * mustn't be kept
+     * @param move
+     */
+    void move(BitBoard bits, int move);
+
+    /**
+     * The current game has an illegal or unreadable move or start position, the rest of its
+     * moves are skipped
+     * @param message
+     * @param bits The position the move was made in, or null if the start position isn't
+     * valid
+     */
+    void error(String message, BitBoard bits);
+
+    /**
+     * The current game ends
+     * @param result The result (1-0, 0-1, 1/2-1/2 or *)
+     */
+    void endGame(String result);
+
+}
@@ -0,0 +1,428 @@
+/*
+ * PgnReader.java
+ *
+ */
+
+package no.hist.aitel.chess.pgn;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import no.hist.aitel.chess.board.BitBoard;
+import no.hist.aitel.chess.board.Move;
+import no.hist.aitel.chess.board.MoveList;
+
+/**
+ * Reads games in Portable Game Notation from a channel and passes them to a listener as they
+ * are read. The input is read through a fixed buffer and tokenized in place, so memory use
+ * doesn't depend on the size of the input or of the games, and only tag values become
+ * strings. Moves are resolved against the legal moves of the position and made on a
+ * bitboard, so the listener sees every position of the game. Comments, variations, numeric
+ * annotations and escaped lines are skipped.
+ * @author martin
+ */
+
+public class PgnReader {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Longest token kept, the rest of a longer token is skipped
+     */
+    private static final int MAX_TOKEN = 1024;
+
+    /**
+     * Position games without a FEN tag start from, copied for each game
+     */
+    private static final BitBoard START = new BitBoard(
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+
+    private ReadableByteChannel channel;
+    private byte[] data = new byte[BUFFER_SIZE];
+    private ByteBuffer buffer = ByteBuffer.wrap(data);
+    private int position = 0;
+    private int limit = 0;
+
+    /**
+     * A character given back to be read again, or -1
+     */
+    private int pushed = -1;
+
+    private byte[] token = new byte[MAX_TOKEN];
+    private char[] chars = new char[MAX_TOKEN];
+    private int length;
+    private MoveList list = new MoveList();
+
+    /**
+     * State of the game being read
+     */
+    private boolean inGame = false;
+    private boolean hasMoves = false;
+    private boolean skipping = false;
+    private String fen;
+    private BitBoard bits;
+    private long games = 0;
+
+    /**
+     * Creates a reader
+     * @param channel A blocking channel to read from, it isn't closed by the reader
+     */
+    public PgnReader(ReadableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Read all games until the end of the input
+     * @param listener
+     * @return The number of games read
+     * @throws IOException
+     */
+    public long read(PgnListener listener) throws IOException {
+        int c;
+        while ((c = next()) != -1) {
+            switch (c) {
+                case ' ':
+                case '\t':
+                case '\n':
+                case '\r': {
+                    break;
+                }
+                case '[': {
+                    readTag(listener);
+                    break;
+                }
+                case '{': {
+                    skipUntil('}');
+                    break;
+                }
+                case ';':
+                case '%': {
+                    skipUntil('\n');
+                    break;
+                }
+                case '(': {
+                    skipVariation();
+                    break;
+                }
+                case ')':
+                case ']':
+                case '}': {
+                    break;
+                }
+                case '$': {
+                    // Numeric annotation
+                    readToken(next());
+                    break;
+                }
+                default: {
+                    readToken(c);
+                    readMoveText(listener);
+                    break;
+                }
+            }
+        }
+        if (inGame) {
+            endGame(listener, "*");
+        }
+        return games;
+    }
+
+    /**
+     * Get the number of games read
+     * @return The number of games
+     */
+    public long getGames() {
+        return games;
+    }
+
+    /**
+     * Read a tag pair, after the opening bracket
+     * @param listener
+     * @throws IOException
+     */
+    private void readTag(PgnListener listener) throws IOException {
+        if (inGame && hasMoves) {
+            // The last game had no result
+            endGame(listener, "*");
+        }
+        startGame(listener);
+        int c = skipSpaces();
+        length = 0;
+        while (c != -1 && c != '"' && c != ']' && !isSpace(c)) {
+            append(c);
+            c = next();
+        }
+        String name = new String(chars, 0, length);
+        if (isSpace(c)) {
+            c = skipSpaces();
+        }
+        if (c != '"') {
+            // Not a tag pair
+            if (c != ']') {
+                skipUntil(']');
+            }
+            return;
+        }
+        length = 0;
+        for (c = next(); c != -1 && c != '"'; c = next()) {
+            if (c == '\\') {
+                c = next();
+            }
+            if (c != -1) {
+                append(c);
+            }
+        }
+        String value = getTagValue();
+        skipUntil(']');
+        if (name.equals("FEN")) {
+            fen = value;
+        }
+        listener.tag(name, value);
+    }
+
+    /**
+     * Handle a token of the move text: a move number, a move or a result
+     * @param listener
+     */
+    private void readMoveText(PgnListener listener) {
+        if (isResult()) {
+            startGame(listener);
+            endGame(listener, new String(chars, 0, length));
+            return;
+        }
+        // Move numbers, also when written together with the move as in 1.e4
+        int start = 0;
+        while (start < length && chars[start] >= '0' && chars[start] <= '9') {
+            start++;
+        }
+        if (start == length) {
+            return;
+        }
+        if (chars[start] == '.' || start == 0) {
+            while (start < length && chars[start] == '.') {
+                start++;
+            }
+        } else {
+            start = 0;
+        }
+        if (start == length) {
+            return;
+        }
+
+        startGame(listener);
+        hasMoves = true;
+        if (skipping) {
+            return;
+        }
+        if (bits == null) {
+            try {
+                bits = fen == null ? new BitBoard(START) : new BitBoard(fen);
+            } catch (IllegalArgumentException e) {
+                skipGame(listener, e.getMessage(), null);
+                return;
+            } catch (RuntimeException e) {
+                skipGame(listener, "Can't set up position: " + e, null);
+                return;
+            }
+        }
+        // Any failure only ends this game, the next one is read as usual
+        try {
+            int move = San.parse(bits, chars, start, length - start, list);
+            if (move == Move.NONE) {
+                skipGame(listener, "Illegal move: " + new String(chars, start, length - start),
+                        bits);
+                return;
+            }
+            listener.move(bits, move);
+            bits.makeMove(move);
+        } catch (RuntimeException e) {
+            skipGame(listener, "Can't read move " + new String(chars, start, length - start)
+                    + ": " + e, null);
+        }
+    }
+
+    /**
+     * Report an error in the game being read and skip the rest of its moves
+     * @param listener
+     * @param message
+     * @param bits The position of the error, or null if it isn't known
+     */
+    private void skipGame(PgnListener listener, String message, BitBoard bits) {
+        skipping = true;
+        listener.error(message, bits);
+    }
+
+    /**
+     * Check if the token is a game result
+     * @return True if it is and false otherwise
+     */
+    private boolean isResult() {
+        switch (length) {
+            case 1: {
+                return chars[0] == '*';
+            }
+            case 3: {
+                return (chars[0] == '1' && chars[1] == '-' && chars[2] == '0')
+                        || (chars[0] == '0' && chars[1] == '-' && chars[2] == '1');
+            }
+            case 7: {
+                return new String(chars, 0, length).equals("1/2-1/2");
+            }
+            default: {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Start a game unless one is being read
+     * @param listener
+     */
+    private void startGame(PgnListener listener) {
+        if (!inGame) {
+            inGame = true;
+            listener.startGame();
+        }
+    }
+
+    /**
+     * End the game being read
+     * @param listener
+     * @param result
+     */
+    private void endGame(PgnListener listener, String result) {
+        listener.endGame(result);
+        games++;
+        inGame = false;
+        hasMoves = false;
+        skipping = false;
+        fen = null;
+        bits = null;
+    }
+
+    /**
+     * Read a token of the move text
+     * @param c The first character
+     * @throws IOException
+     */
+    private void readToken(int c) throws IOException {
+        length = 0;
+        while (c != -1 && !isSpace(c) && "{}()[];\"$".indexOf(c) == -1) {
+            append(c);
+            c = next();
+        }
+        pushed = c;
+    }
+
+    /**
+     * Add a character to the token, unless it is full
+     * @param c
+     */
+    private void append(int c) {
+        if (length < MAX_TOKEN) {
+            token[length] = (byte) c;
+            chars[length] = (char) c;
+            length++;
+        }
+    }
+
+    /**
+     * Get the token as a tag value, which may be UTF-8 or Latin-1
+     * @return The value
+     */
+    private String getTagValue() {
+        for (int i = 0; i < length; i++) {
+            if (token[i] < 0) {
+                try {
+                    return new String(token, 0, length, "UTF-8");
+                } catch (UnsupportedEncodingException e) {
+                    break;
+                }
+            }
+        }
+        return new String(chars, 0, length);
+    }
+
+    /**
+     * Skip characters until one is found
+     * @param end The character to stop after
+     * @throws IOException
+     */
+    private void skipUntil(int end) throws IOException {
+        int c;
+        do {
+            c = next();
+        } while (c != end && c != -1);
+    }
+
+    /**
+     * Skip a variation, after the opening parenthesis. Variations may be nested and contain
+     * comments.
+     * @throws IOException
+     */
+    private void skipVariation() throws IOException {
+        int depth = 1;
+        while (depth > 0) {
+            int c = next();
+            if (c == -1) {
+                return;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == '{') {
+                skipUntil('}');
+            }
+        }
+    }
+
+    /**
+     * Skip spaces
+     * @return The first character which isn't a space
+     * @throws IOException
+     */
+    private int skipSpaces() throws IOException {
+        int c;
+        do {
+            c = next();
+        } while (isSpace(c));
+        return c;
+    }
+
+    /**
+     * Check if a character is a space
+     * @param c
+     * @return True if it is and false otherwise
+     */
+    private static boolean isSpace(int c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+    /**
+     * Read the next character
+     * @return The character, or -1 at the end of the input
+     * @throws IOException
+     */
+    private int next() throws IOException {
+        if (pushed != -1) {
+            int c = pushed;
+            pushed = -1;
+            return c;
+        }
+        if (position == limit) {
+            buffer.clear();
+            int read;
+            do {
+                read = channel.read(buffer);
+            } while (read == 0);
+            if (read == -1) {
+                return -1;
+            }
+            position = 0;
+            limit = read;
+        }
+        return data[position++] & 0xFF;
+    }
+
+}
@@ -0,0 +1,298 @@
+/*
+ * PgnValidator.java
+ *
+ */
+
+package no.hist.aitel.chess.pgn;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import no.hist.aitel.chess.board.BitBoard;
+
+/**
+ * Checks every move of every game in a directory of PGN files against the rules, reading the
+ * files in parallel on a fork-join pool. Each file is read by one worker with its own reader
+ * and position, and the results are reported per file with the illegal moves found.
+ * @author martin
+ */
+
+public class PgnValidator {
+
+    /**
+     * Most illegal moves listed for a file, the rest are only counted
+     */
+    public static final int MAX_ERRORS = 1000;
+
+    private ForkJoinPool pool;
+
+    /**
+     * Creates a validator using one thread per processor
+     */
+    public PgnValidator() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a validator
+     * @param threads Number of files read at the same time
+     */
+    public PgnValidator(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Invalid number of threads: " + threads);
+        }
+        pool = new ForkJoinPool(threads);
+    }
+
+    /**
+     * Validate the PGN files of a directory
+     * @param directory
+     * @return The result of each file, in order of file name
+     * @throws IOException If the directory can't be read
+     */
+    public List<Result> validate(File directory) throws IOException {
+        File[] files = directory.listFiles(new FileFilter() {
+
+            public boolean accept(File file) {
+                return file.isFile() && file.getName().toLowerCase().endsWith(".pgn");
+            }
+        });
+        if (files == null) {
+            throw new IOException("Can't read directory: " + directory);
+        }
+        Arrays.sort(files);
+        return pool.invoke(new DirectoryTask(files));
+    }
+
+    /**
+     * Stop the worker threads
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Validate a directory and print the results
+     * @param args The directory, and optionally the number of threads
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: PgnValidator <directory> [threads]");
+            System.exit(2);
+        }
+        PgnValidator validator = args.length > 1 ? new PgnValidator(Integer.parseInt(args[1]))
+                : new PgnValidator();
+        long start = System.currentTimeMillis();
+        List<Result> results;
+        try {
+            results = validator.validate(new File(args[0]));
+        } finally {
+            validator.shutdown();
+        }
+        long time = Math.max(System.currentTimeMillis() - start, 1);
+
+        long games = 0, moves = 0, errors = 0, bytes = 0;
+        for (Result result : results) {
+            for (String error : result.getErrors()) {
+                System.out.println(result.getFile().getName() + ": " + error);
+            }
+            if (result.getErrorCount() > result.getErrors().size()) {
+                System.out.println(result.getFile().getName() + ": "
+                        + (result.getErrorCount() - result.getErrors().size()) + " more");
+            }
+            System.out.println(result);
+            games += result.getGames();
+            moves += result.getMoves();
+            errors += result.getErrorCount();
+            bytes += result.getFile().length();
+        }
+        System.out.println("Total: " + results.size() + " files, " + games + " games, " + moves
+                + " moves, " + errors + " errors in " + time + " ms (" + games * 1000 / time
+                + " games/s, " + String.format("%.1f", bytes / 1000.0 / time) + " MB/s)");
+        if (errors > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * The result of validating a file
+     */
+    public static class Result implements PgnListener {
+
+        private File file;
+        private long games = 0;
+        private long moves = 0;
+        private long errorCount = 0;
+        private List<String> errors = new ArrayList<String>();
+        private long time;
+
+        /**
+         * Creates an empty result
+         * @param file
+         */
+        private Result(File file) {
+            this.file = file;
+        }
+
+        /**
+         * Read and validate the file
+         */
+        private void validate() {
+            long start = System.currentTimeMillis();
+            try {
+                FileInputStream in = new FileInputStream(file);
+                try {
+                    new PgnReader(in.getChannel()).read(this);
+                } finally {
+                    in.close();
+                }
+            } catch (IOException e) {
+                errorCount++;
+                errors.add("Can't read file: " + e.getMessage());
+            } catch (RuntimeException e) {
+                // Only this file fails, the others are still validated
+                errorCount++;
+                errors.add("Can't read file: " + e);
+            }
+            time = System.currentTimeMillis() - start;
+        }
+
+        public void startGame() {
+            games++;
+        }
+
+        public void tag(String name, String value) {
+        }
+
+        public void move(BitBoard bits, int move) {
+            moves++;
+        }
+
+        public void error(String message, BitBoard bits) {
+            errorCount++;
+            if (errors.size() < MAX_ERRORS) {
+                errors.add("Game " + games + ": " + message
+                        + (bits == null ? "" : " in " + bits.toFen()));
+            }
+        }
+
+        public void endGame(String result) {
+        }
+
+        /**
+         * Get the file
+         * @return The file
+         */
+        public File getFile() {
+            return file;
+        }
+
+        /**
+         * Get the number of games
+         * @return The number of games
+         */
+        public long getGames() {
+            return games;
+        }
+
+        /**
+         * Get the number of legal moves
+         * @return The number of moves
+         */
+        public long getMoves() {
+            return moves;
+        }
+
+        /**
+         * Get the number of illegal moves and other errors
+         * @return The number of errors
+         */
+        public long getErrorCount() {
+            return errorCount;
+        }
+
+        /**
+         * Get the illegal moves and other errors, at most MAX_ERRORS of them
+         * @return The errors
+         */
+        public List<String> getErrors() {
+            return errors;
+        }
+
+        /**
+         * Get the time used reading the file
+         * @return The time in milliseconds
+         */
+        public long getTime() {
+            return time;
+        }
+
+        /**
+         * String representation of object
+         * @return The file and its counts
+         */
+        @Override
+        public String toString() {
+            return file.getName() + ": " + games + " games, " + moves + " moves, " + errorCount
+                    + " errors in " + time + " ms (" + games * 1000 / Math.max(time, 1)
+                    + " games/s)";
+        }
+    }
+
+    /**
+     * Validates a single file
+     */
+    private static class FileTask extends RecursiveTask<Result> {
+
+        private static final long serialVersionUID = 1L;
+
+        private File file;
+
+        public FileTask(File file) {
+            this.file = file;
+        }
+
+        @Override
+        protected Result compute() {
+            Result result = new Result(file);
+            result.validate();
+            return result;
+        }
+    }
+
+    /**
+     * Validates the files of a directory, each as a task of its own
+     */
+    private static class DirectoryTask extends RecursiveTask<List<Result>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private File[] files;
+
+        public DirectoryTask(File[] files) {
+            this.files = files;
+        }
+
+        @Override
+        protected List<Result> compute() {
+            List<FileTask> tasks = new ArrayList<FileTask>();
+            for (int i = 0; i < files.length; i++) {
+                tasks.add(new FileTask(files[i]));
+            }
+            invokeAll(tasks);
+            List<Result> results = new ArrayList<Result>();
+            for (FileTask task : tasks) {
+                results.add(task.join());
+            }
+            return results;
+        }
+    }
+
+}
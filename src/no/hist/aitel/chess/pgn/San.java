@@ -0,0 +1,181 @@
+/*
+ * San.java
+ *
+ */
+
+package no.hist.aitel.chess.pgn;
+
+import no.hist.aitel.chess.board.BitBoard;
+import no.hist.aitel.chess.board.Move;
+import no.hist.aitel.chess.board.MoveGenerator;
+import no.hist.aitel.chess.board.MoveList;
+import static no.hist.aitel.chess.board.Attacks.*;
+import static no.hist.aitel.chess.piece.PieceConstants.*;
+
+/**
+ * Standard algebraic notation (SAN), as used in PGN. A move is found by matching the piece,
+ * target position, promotion and any given origin file or rank against the legal moves of the
+ * position. Parsing is lenient about what SAN writers disagree on: check and annotation marks,
+ * the capture mark, promotion with or without '=', and castling with O or 0.
+ * @author martin
+ */
+
+public class San {
+
+    // Don't allow instances of this class
+    private San() {
+    }
+
+    /**
+     * Find the legal move written in SAN
+     * @param bits The position the move is made in
+     * @param san
+     * @param list Buffer for the legal moves
+     * @return The move, or Move.NONE if it isn't a legal move or matches more than one
+     */
+    public static int parse(BitBoard bits, String san, MoveList list) {
+        return parse(bits, san.toCharArray(), 0, san.length(), list);
+    }
+
+    /**
+     * Find the legal move written in SAN, without allocating
+     * @param bits The position the move is made in
+     * @param chars
+     * @param offset Start of the move in chars
+     * @param length Length of the move
+     * @param list Buffer for the legal moves
+     * @return The move, or Move.NONE if it isn't a legal move or matches more than one
+     */
+    public static int parse(BitBoard bits, char[] chars, int offset, int length, MoveList list) {
+        int end = offset + length;
+        // Check, mate and annotation marks
+        while (end > offset && "+#!?".indexOf(chars[end - 1]) != -1) {
+            end--;
+        }
+        if (end - offset < 2) {
+            return Move.NONE;
+        }
+        if (chars[offset] == 'O' || chars[offset] == '0') {
+            return parseCastling(bits, chars, offset, end, list);
+        }
+
+        int promotion = UNDEFINED;
+        int type = getType(chars[end - 1]);
+        if (type != UNDEFINED && type != KING) {
+            promotion = type;
+            end--;
+            if (chars[end - 1] == '=') {
+                end--;
+            }
+        }
+        if (end - offset < 2) {
+            return Move.NONE;
+        }
+        int toFile = chars[end - 2] - 'a';
+        int toRank = chars[end - 1] - '1';
+        if (toFile < 0 || toFile > 7 || toRank < 0 || toRank > 7) {
+            return Move.NONE;
+        }
+        int to = toRank * 8 + toFile;
+        end -= 2;
+
+        int start = offset;
+        type = getType(chars[start]);
+        if (type == UNDEFINED) {
+            type = PAWN;
+        } else {
+            start++;
+        }
+        int fromFile = UNDEFINED, fromRank = UNDEFINED;
+        for (int i = start; i < end; i++) {
+            char c = chars[i];
+            if (c >= 'a' && c <= 'h') {
+                fromFile = c - 'a';
+            } else if (c >= '1' && c <= '8') {
+                fromRank = c - '1';
+            } else if (c != 'x' && c != ':' && c != '-') {
+                return Move.NONE;
+            }
+        }
+
+        MoveGenerator.generateLegalMoves(bits, list);
+        int found = Move.NONE;
+        for (int i = 0; i < list.size(); i++) {
+            int move = list.get(i);
+            int from = Move.getFrom(move);
+            if (Move.getTo(move) != to || bits.getType(from) != type
+                    || (Move.isPromotion(move) ? Move.getPromotion(move) : UNDEFINED)
+                    != promotion
+                    || (fromFile != UNDEFINED && getFile(from) != fromFile)
+                    || (fromRank != UNDEFINED && getRank(from) != fromRank)) {
+                continue;
+            }
+            if (found != Move.NONE) {
+                // Ambiguous
+                return Move.NONE;
+            }
+            found = move;
+        }
+        return found;
+    }
+
+    /**
+     * Find the castling move written as O-O or O-O-O
+     * @param bits
+     * @param chars
+     * @param offset
+     * @param end End of the move, without marks
+     * @param list
+     * @return The move, or Move.NONE if it isn't legal
+     */
+    private static int parseCastling(BitBoard bits, char[] chars, int offset, int end,
+            MoveList list) {
+        int length = end - offset;
+        int king = bits.getTurn() == WHITE ? 4 : 60;
+        int to;
+        if (length == 3 && chars[offset + 1] == '-') {
+            to = king + 2;
+        } else if (length == 5 && chars[offset + 1] == '-' && chars[offset + 3] == '-') {
+            to = king - 2;
+        } else {
+            return Move.NONE;
+        }
+        MoveGenerator.generateLegalMoves(bits, list);
+        for (int i = 0; i < list.size(); i++) {
+            int move = list.get(i);
+            if (Move.getFlag(move) == Move.CASTLING && Move.getTo(move) == to) {
+                return move;
+            }
+        }
+        return Move.NONE;
+    }
+
+    /**
+     * Get the type of a SAN piece letter
+     * @param c
+     * @return The type, or UNDEFINED if the letter isn't a piece
+     */
+    private static int getType(char c) {
+        switch (c) {
+            case 'N': {
+                return KNIGHT;
+            }
+            case 'B': {
+                return BISHOP;
+            }
+            case 'R': {
+                return ROOK;
+            }
+            case 'Q': {
+                return QUEEN;
+            }
+            case 'K': {
+                return KING;
+            }
+            default: {
+                return UNDEFINED;
+            }
+        }
+    }
+
+}
@@ -6,10 +6,13 @@
 package no.hist.aitel.chess.position;
 
 import java.io.Serializable;
+import no.hist.aitel.chess.board.Attacks;
+import no.hist.aitel.chess.board.BitBoard;
 import no.hist.aitel.chess.board.Board;
 import no.hist.aitel.chess.piece.IllegalTypeException;
 import no.hist.aitel.chess.piece.Piece;
 import static no.hist.aitel.chess.piece.PieceConstants.*;
+import static no.hist.aitel.chess.position.PositionConstants.*;
 
 /**
  *
@@ -28,11 +31,6 @@ public class Position implements Serializable {
      */
     private int from, to, diff;
 
-    /**
-     * Boolean which controls enPassant
-     */
-    private boolean enPassant;
-
 
     /**
      * Creates a position object for a board which is used to validate moves
@@ -58,25 +56,43 @@ public class Position implements Serializable {
      * @return True if possible and false otherwise
      */
     public boolean getEnPassant() {
-        return enPassant;
+        return board.getEnPassant();
     }
 
     /**
      * Verifies positions
-     * @param simulated
+     * @param simulated Kept for compatibility, en passant state is now tracked by the board
      * @throws IllegalPositionException
      */
     public void verifyPositions(boolean simulated) throws IllegalPositionException {
+        int reason = check();
+        if (reason == INVALID_TYPE) {
+            throw new IllegalTypeException("Invalid type: " + board.getPiece(from).getType());
+        } else if (reason != VALID) {
+            throw new IllegalPositionException(getMessage(reason));
+        }
+    }
+
+    /**
+     * Check if a piece can move from one position to another, without throwing exceptions
+     * @param from
+     * @param to
+     * @return VALID or the reason the move is illegal (see PositionConstants)
+     */
+    public int check(int from, int to) {
+        setPositions(from, to);
+        return check();
+    }
+
+    /**
+     * Check the current positions
+     * @return VALID or the reason the move is illegal (see PositionConstants)
+     */
+    private int check() {
 
         // Check if any of the positions are outside the board
-        if ((from < 0 || from > 63) || (to < 0 || from > 63)) {
-            throw new IllegalPositionException("Can't move pieces outside of the board.\n"
-                    + "\nFrom: " + from
-                    + "\nTo: " + to);
-        }
-        
-        if (!simulated) {
-            enPassant = false;
+        if ((from < 0 || from > 63) || (to < 0 || to > 63)) {
+            return OUTSIDE_BOARD;
         }
 
         // Get destionation pieces
@@ -85,24 +101,22 @@ public class Position implements Serializable {
 
         // Can't capture fromPiece of same color
         if (fromPiece.getColor() == toPiece.getColor()) {
-            throw new IllegalPositionException("Can't capture piece of same color.\n" +
-                    "Type: " + fromPiece.getType() +
-                    "\nFrom: " + from +
-                    "\nTo: " + to);
+            return SAME_COLOR;
         }
 
         // Piece type
         int type = fromPiece.getType();
+        if (type < PAWN || type > KING) {
+            return INVALID_TYPE;
+        }
 
-        // Direction
-        int direction = getDirection(type);
+        // Direction, UNDEFINED if the positions aren't on the same rank, file or diagonal
+        int direction = Attacks.getDirection(from, to);
 
-        // Check if path is clear, not checking for type == 2 (Knight) since it can jump over pieces
-        if (type != KNIGHT && !isValidPath(direction)) {
-            throw new IllegalPositionException("A piece is blocking my path.\n" +
-                    "Type: " + fromPiece.getType() +
-                    "\nFrom: " + from +
-                    "\nTo: " + to);
+        // Check if path is clear, a knight can jump over pieces and is never on a line
+        if (direction != UNDEFINED
+                && (Attacks.getBetween(from, to) & board.getBitBoard().getOccupied()) != 0) {
+            return BLOCKED_PATH;
         }
 
         // Type specific rules
@@ -112,226 +126,123 @@ public class Position implements Serializable {
                     if (fromPiece.getColor() == 0) { // White fromPiece
                         if (from >= 8 && from <= 15) { // If the pawn is in its original position, it can move 1 or 2 fields forward
                             if (diff != 8 && diff != 16) {
-                                throw new IllegalPositionException("Pawn can only move one or two fields forward when in initial position.\n" +
-                                        "Type: " + fromPiece.getType() +
-                                        "\nFrom: " + from +
-                                        "\nTo: " + to);
-                            }
-                            if (!simulated && diff == 16) {
-                                enPassant = true;
+                                return PAWN_INITIAL;
                             }
                         } else if (diff != 8) { // Pawn can always move 1 field forward
-                            throw new IllegalPositionException("Pawn can only move one field forward when not in initial position.\n" +
-                                    "Type: " + fromPiece.getType() +
-                                    "\nFrom: " + from +
-                                    "\nTo: " + to);
+                            return PAWN_FORWARD;
                         }
                     } else if (fromPiece.getColor() == 1) { // Black fromPiece
                         if (from >= 48 && from <= 55) { // Same as above
                             if (diff != -8 && diff != -16) {
-                                throw new IllegalPositionException("Pawn can only move one or two fields forward when in initial position.\n" +
-                                        "Type: " + fromPiece.getType() +
-                                        "\nFrom: " + from +
-                                        "\nTo: " + to);
-                            }
-                            if (!simulated && diff == -16) {
-                                enPassant = true;
+                                return PAWN_INITIAL;
                             }
                         } else if (diff != -8) {
-                            throw new IllegalPositionException("Pawn can only move one field forward when not in initial position.\n" +
-                                    "Type: " + fromPiece.getType() +
-                                    "\nFrom: " + from +
-                                    "\nTo: " + to);
+                            return PAWN_FORWARD;
                         }
                     }
-                } else {
-                    if (fromPiece.getColor() == 0 && diff != 9 && diff != 7) {
-                        throw new IllegalPositionException("Pawn can't move forward because field isn't empty.\n" +
-                                "Type: " + fromPiece.getType() +
-                                "\nFrom: " + from +
-                                "\nTo: " + to);
-                    } else if (fromPiece.getColor() == 1 && diff != -9 && diff != -7) {
-                        throw new IllegalPositionException("Pawn can't move forward because field isn't empty.\n" +
-                                "Type: " + fromPiece.getType() +
-                                "\nFrom: " + from +
-                                "\nTo: " + to);
-                    }
+                } else if ((Attacks.getPawnAttacks(fromPiece.getColor(), from) & (1L << to)) == 0) {
+                    return PAWN_BLOCKED;
                 }
-                break;
+                return VALID;
             }
             case BISHOP: {
-                if ((diff % 7 == 0 || diff % 9 == 0) && getFieldColor(to) == getFieldColor(from)) {
-                    break;
-                } else {
-                    throw new IllegalPositionException("Bishop can only move diagonally.\n" +
-                            "Type: " + fromPiece.getType() +
-                            "\nFrom: " + from +
-                            "\nTo: " + to);
+                if (direction != UNDEFINED && Attacks.isDiagonal(direction)) {
+                    return VALID;
                 }
+                return BISHOP_MOVE;
             }
             case KNIGHT: {
-                switch (diff) {
-                    case -10:
-                    case -17:
-                    case -15:
-                    case -6:
-                    case 6:
-                    case 10:
-                    case 15:
-                    case 17: {
-                        break;
-                    }
-                    default: {
-                        throw new IllegalPositionException("Knight can only move one field diagonally + one forward.\n" +
-                                "Type: " + fromPiece.getType() +
-                                "\nFrom: " + from +
-                                "\nTo: " + to);
-                    }
+                if ((Attacks.getKnightAttacks(from) & (1L << to)) != 0) {
+                    return VALID;
                 }
-                break;
+                return KNIGHT_MOVE;
             }
             case ROOK: {
-                if (diff % 8 == 0 || getRank(from) == getRank(to)) {
-                    break;
-                } else {
-                    throw new IllegalPositionException("Rook can only move forward, backward, left or right.\n" +
-                            "Type: " + fromPiece.getType() +
-                            "\nFrom: " + from +
-                            "\nTo: " + to);
+                if (direction != UNDEFINED && !Attacks.isDiagonal(direction)) {
+                    return VALID;
                 }
+                return ROOK_MOVE;
             }
             case QUEEN: {
-                if (diff % 7 == 0 || diff % 8 == 0 || diff % 9 == 0) {
-                    break;
-                } else if (getRank(from) == getRank(to)) {
-                    break;
-                } else {
-                    throw new IllegalPositionException("Queen can't move one field diagonally + one forward.\n" +
-                            "Type: " + fromPiece.getType() +
-                            "\nFrom: " + from +
-                            "\nTo: " + to);
+                if (direction != UNDEFINED) {
+                    return VALID;
                 }
+                return QUEEN_MOVE;
             }
-            case KING: {
-                switch (diff) {
-                    case -1:
-                    case -7:
-                    case -8:
-                    case -9:
-                    case 1:
-                    case 7:
-                    case 8:
-                    case 9: {
-                        break;
-                    }
-                    default: {
-                        throw new IllegalPositionException("King can only move one field in any direction.\n" +
-                                "Type: " + fromPiece.getType() +
-                                "\nFrom: " + from +
-                                "\nTo: " + to);
-                    }
+            default: { // King
+                if ((Attacks.getKingAttacks(from) & (1L << to)) != 0) {
+                    return VALID;
                 }
-                break;
-            }
-            default: {
-                throw new IllegalTypeException("Invalid type: " + type);
+                return KING_MOVE;
             }
         }
     }
 
     /**
-     * Get the current direction for a type (not for Knight)
-     * @param type
-     * @return The direction or -1 if something bad happens
+     * Get a message describing why a move is illegal
+     * @param reason
+     * @return The message, including type and positions of the current move
      */
-    private int getDirection(int type) {
-        int[] directions = getDirections(type);
-        for (int direction : directions) {
-            if (direction == 1) {
-                return 1;
-            } else if (diff % direction == 0) {
-                return direction;
+    public String getMessage(int reason) {
+        String message;
+        switch (reason) {
+            case VALID: {
+                return "Valid move.";
             }
-        }
-        return -1;
-    }
-
-    /**
-     * Get rank from position
-     * @param position
-     * @return The rank
-     */
-    private int getRank(int position) {
-        int j = 0;
-        for (int i = 0; i <= position; i++) {
-            if (i % 8 == 0) {
-                j++;
+            case OUTSIDE_BOARD: {
+                return "Can't move pieces outside of the board.\n" +
+                        "\nFrom: " + from +
+                        "\nTo: " + to;
             }
-        }
-        return j;
-    }
-
-
-    /**
-     * Get possible directions for a type
-     * @param type
-     * @return The possible directions for the type or null if something bad happens
-     */
-    private int[] getDirections(int type) {
-        switch (type) {
-            case PAWN: {
-                return new int[] {7, 8, 9, 16};
+            case SAME_COLOR: {
+                message = "Can't capture piece of same color.";
+                break;
             }
-            case BISHOP: {
-                return new int[] {7, 9};
+            case BLOCKED_PATH: {
+                message = "A piece is blocking my path.";
+                break;
             }
-            case KNIGHT: {
-                return new int[] {6, 10, 15, 17};
+            case PAWN_INITIAL: {
+                message = "Pawn can only move one or two fields forward when in initial position.";
+                break;
             }
-            case ROOK: {
-                return new int[] {8, 1}; // Not including 1 as n % 1 == 0 and that causes an invalid
-                                      // warning to be displayed
+            case PAWN_FORWARD: {
+                message = "Pawn can only move one field forward when not in initial position.";
+                break;
             }
-            case QUEEN:
-            case KING: {
-                return new int[] {7, 8, 9, 1}; // Not including 1 as n % 1 == 0 and that causes an
-                                            // invalid warning to be displayed
+            case PAWN_BLOCKED: {
+                message = "Pawn can't move forward because field isn't empty.";
+                break;
             }
-            default: {
-                throw new IllegalTypeException("Invalid type: " + type);
+            case BISHOP_MOVE: {
+                message = "Bishop can only move diagonally.";
+                break;
             }
-        }
-    }
-
-    /**
-     * Checks if path in a direction is clear
-     * @param direction
-     * @return True if the path is clear and false otherwise
-     */
-    private boolean isValidPath(int direction) {
-        // Could not find a vertical or horizontal direction, but rank is still different
-        if (direction == -1) {
-            if (getRank(from) != getRank(to)) {
-                return true;
-            } else {
-                return false;
+            case KNIGHT_MOVE: {
+                message = "Knight can only move one field diagonally + one forward.";
+                break;
             }
-        }
-        if (to < from) { // Black moves in a negative direction
-            for (int position = from - direction; position > to; position -= direction) {
-                if (!board.getPiece(position).isEmpty()) {
-                    return false;
-                }
+            case ROOK_MOVE: {
+                message = "Rook can only move forward, backward, left or right.";
+                break;
             }
-        } else { // White moves in a positive direction
-            for (int position = from + direction; position < to; position += direction) {
-                if (!board.getPiece(position).isEmpty()) {
-                    return false;
-                }
+            case QUEEN_MOVE: {
+                message = "Queen can't move one field diagonally + one forward.";
+                break;
+            }
+            case KING_MOVE: {
+                message = "King can only move one field in any direction.";
+                break;
+            }
+            default: {
+                message = "Invalid type.";
+                break;
             }
         }
-
-        return true;
+        return message + "\n" +
+                "Type: " + board.getPiece(from).getType() +
+                "\nFrom: " + from +
+                "\nTo: " + to;
     }
 
     /**
@@ -358,22 +269,12 @@ public class Position implements Serializable {
      */
     public boolean isEnPassant() {
         Piece fromPiece = board.getPiece(from);
-        Piece toPiece = board.getPiece(to);
-        if (fromPiece.getType() == PAWN && toPiece.isEmpty()) {
+        int enPassant = board.getBitBoard().getEnPassant();
+        if (fromPiece.getType() == PAWN && to == enPassant) {
             if (fromPiece.getColor() == WHITE) {
-                if (to == from + 9 || to == from + 7) {
-                    Piece blackPawn = board.getPiece(to - 8);
-                    if (enPassant && blackPawn.getColor() == BLACK) {
-                        return true;
-                    }
-                }
+                return to == from + 9 || to == from + 7;
             } else if (fromPiece.getColor() == BLACK) {
-                if (to == from - 9 || to == from - 7) {
-                    Piece whitePawn = board.getPiece(to + 8);
-                    if (enPassant && whitePawn.getColor() == WHITE) {
-                        return true;
-                    }
-                }
+                return to == from - 9 || to == from - 7;
             }
         }
         return false;
@@ -384,91 +285,52 @@ public class Position implements Serializable {
      * @return True if we're castling and false otherwise
      */
     public boolean isCastling() {
+        BitBoard bits = board.getBitBoard();
         Piece piece = board.getPiece(from);
-        int rookFrom;
-        if (piece.getType() == KING && !piece.isMoved()) {
-            if (piece.getColor() == WHITE) {
-                if (to == 6 && isEmptyRange(5, 6)) {
-                    rookFrom = 7;
-                } else if (to == 2 && isEmptyRange(1, 3)) {
-                    rookFrom = 0;
-                } else {
-                    return false;
-                }
-                Piece rook;
-                if (rookFrom == 0 || rookFrom == 7) {
-                    rook = board.getPiece(rookFrom);
-                } else {
-                    return false;
-                }
-                if (rook.getColor() == WHITE && rook.getType() == ROOK && !rook.isMoved()) {
-                    return true;
-                }
-            } else if (piece.getColor() == BLACK) {
-                if (to == 62 && isEmptyRange(61, 62)) {
-                    rookFrom = 63;
-                } else if (to == 58 && isEmptyRange(57, 59)) {
-                    rookFrom = 56;
-                } else {
-                    return false;
-                }
-                Piece rook;
-                if (rookFrom == 56 || rookFrom == 63) {
-                    rook = board.getPiece(rookFrom);
-                } else {
-                    return false;
-                }
-                if (rook.getColor() == BLACK && rook.getType() == ROOK && !rook.isMoved()) {
-                    return true;
-                }
-            }
+        int right, through;
+        if (piece.getType() != KING) {
+            return false;
         }
-        return false;
-    }
-
-    /**
-     * Get the color of a field
-     * @param position
-     * @return Integer representing the color
-     */
-    private int getFieldColor(int position) {
-        int rank = getRank(position);
-        if (rank % 2 == 0) {
-            if (position % 2 == 0) {
-                return WHITE;
+        if (piece.getColor() == WHITE && from == 4) {
+            if (to == 6 && isEmptyBetween(4, 7)) {
+                right = BitBoard.WHITE_KINGSIDE;
+                through = 5;
+            } else if (to == 2 && isEmptyBetween(4, 0)) {
+                right = BitBoard.WHITE_QUEENSIDE;
+                through = 3;
             } else {
-                return BLACK;
+                return false;
             }
-        } else {
-            if (position % 2 == 0) {
-                return BLACK;
+        } else if (piece.getColor() == BLACK && from == 60) {
+            if (to == 62 && isEmptyBetween(60, 63)) {
+                right = BitBoard.BLACK_KINGSIDE;
+                through = 61;
+            } else if (to == 58 && isEmptyBetween(60, 56)) {
+                right = BitBoard.BLACK_QUEENSIDE;
+                through = 59;
             } else {
-                return WHITE;
+                return false;
             }
+        } else {
+            return false;
+        }
+        if (!bits.hasCastling(right)) {
+            return false;
         }
+        // The king can't castle out of, through or into check
+        int opponent = piece.getColor() ^ 1;
+        return !bits.isAttacked(from, opponent) && !bits.isAttacked(through, opponent)
+                && !bits.isAttacked(to, opponent);
     }
 
     /**
-     * Check if all positions between (and including) two positions is empty
+     * Check if all positions between two positions are empty
      * @param from
      * @param to
-     * @return True if range is empty and false otherwise
+     * @return True if empty and false otherwise
      */
-    private boolean isEmptyRange(int from, int to) {
-        if (to < from) {
-            for (int i = from; i >= to; i--) {
-                if (!board.getPiece(i).isEmpty()) {
-                    return false;
-                }
-            }
-        } else {
-            for (int i = from; i <= to; i++) {
-                if (!board.getPiece(i).isEmpty()) {
-                    return false;
-                }
-            }
-        }
-        return true;
+    private boolean isEmptyBetween(int from, int to) {
+        return (Attacks.getBetween(from, to) & board.getBitBoard().getOccupied()) == 0;
     }
 
     /**
@@ -478,7 +340,7 @@ public class Position implements Serializable {
     @Override
     public String toString() {
         String out = "From: " + from + "\nTo: " + to + "\nDiff: " + diff +
-                "\nenPassant: " + enPassant;
+                "\nenPassant: " + getEnPassant();
         return out;
     }
 
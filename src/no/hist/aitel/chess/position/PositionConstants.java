@@ -0,0 +1,84 @@
+/*
+ * PositionConstants.java
+ *
+ */
+
+package no.hist.aitel.chess.position;
+
+/**
+ * Reasons returned by Position.check() when validating a move
+ * @author martin
+ */
+
+public class PositionConstants {
+
+    // Don't allow instances of this class
+    private PositionConstants() {
+    }
+
+    /**
+     * The move is valid
+     */
+    public static final int VALID = 0;
+
+    /**
+     * One of the positions is outside the board
+     */
+    public static final int OUTSIDE_BOARD = 1;
+
+    /**
+     * The destination holds a piece of the same color
+     */
+    public static final int SAME_COLOR = 2;
+
+    /**
+     * A piece is blocking the path
+     */
+    public static final int BLOCKED_PATH = 3;
+
+    /**
+     * Pawn in its initial position moving other than one or two fields forward
+     */
+    public static final int PAWN_INITIAL = 4;
+
+    /**
+     * Pawn moving other than one field forward
+     */
+    public static final int PAWN_FORWARD = 5;
+
+    /**
+     * Pawn moving forward onto an occupied field
+     */
+    public static final int PAWN_BLOCKED = 6;
+
+    /**
+     * Bishop not moving diagonally
+     */
+    public static final int BISHOP_MOVE = 7;
+
+    /**
+     * Knight not moving one field diagonally + one forward
+     */
+    public static final int KNIGHT_MOVE = 8;
+
+    /**
+     * Rook not moving forward, backward, left or right
+     */
+    public static final int ROOK_MOVE = 9;
+
+    /**
+     * Queen moving like a knight
+     */
+    public static final int QUEEN_MOVE = 10;
+
+    /**
+     * King moving more than one field
+     */
+    public static final int KING_MOVE = 11;
+
+    /**
+     * The piece in the from position has an invalid type
+     */
+    public static final int INVALID_TYPE = 12;
+
+}
@@ -0,0 +1,249 @@
+/*
+ * BitBoardTest.java
+ *
+ */
+
+package no.hist.aitel.chess.board;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static no.hist.aitel.chess.piece.PieceConstants.*;
+
+/**
+ *
+ * @author martin
+ */
+public class BitBoardTest {
+
+    public BitBoardTest() {
+    }
+
+    /**
+     * Test of the pieces and attacks of a bitboard made from a Board.
+     */
+    @Test
+    public void testBitBoard() {
+        System.out.println("BitBoard");
+        BitBoard bits = new Board().getBitBoard();
+        assertEquals(0xFFFF00000000FFFFL, bits.getOccupied());
+        assertEquals(0xFFFFL, bits.getOccupied(WHITE));
+        assertEquals(0xFF00L, bits.getPieces(WHITE, PAWN));
+        assertEquals(0x00FF000000000000L, bits.getPieces(BLACK, PAWN));
+        assertEquals(4, bits.getKing(WHITE));
+        assertEquals(60, bits.getKing(BLACK));
+        assertEquals(QUEEN, bits.getType(3));
+        assertEquals(BLACK, bits.getColor(63));
+        assertTrue(bits.isEmpty(30));
+        assertTrue(bits.isAttacked(20, WHITE));
+        assertFalse(bits.isAttacked(36, WHITE));
+
+        // The copy doesn't change with the original
+        BitBoard copy = new BitBoard(bits);
+        bits.removePiece(12);
+        bits.setPiece(28, WHITE, PAWN);
+        assertFalse(copy.isEmpty(12));
+        assertTrue(copy.isEmpty(28));
+        assertEquals(0xFFFF00000000FFFFL, copy.getOccupied());
+        assertTrue(bits.isAttacked(37, WHITE));
+    }
+
+    /**
+     * Test of makeMove and unmakeMove methods, of class BitBoard, taking back every move
+     * two plies deep from a position with castling and en passant.
+     */
+    @Test
+    public void testMakeUnmakeMove() throws BoardException {
+        System.out.println("makeMove and unmakeMove");
+        Board board = new Board();
+        board.movePiece("E2", "E4");
+        board.movePiece("D7", "D5");
+        board.movePiece("G1", "F3");
+        board.movePiece("B8", "C6");
+        board.movePiece("F1", "C4");
+        board.movePiece("C8", "G4");
+        board.movePiece("E4", "E5");
+        board.movePiece("F7", "F5");
+        BitBoard bits = board.getBitBoard();
+        assertEquals(45, bits.getEnPassant());
+        BitBoard start = new BitBoard(bits);
+        MoveList list = MoveGenerator.generateLegalMoves(bits, new MoveList());
+        assertTrue(list.contains(Move.create(4, 6, Move.CASTLING)));
+        assertTrue(list.contains(Move.create(36, 45, Move.EN_PASSANT)));
+        MoveList replies = new MoveList();
+        for (int i = 0; i < list.size(); i++) {
+            bits.makeMove(list.get(i));
+            assertEquals(list.get(i), bits.getLastMove());
+            BitBoard made = new BitBoard(bits);
+            MoveGenerator.generateLegalMoves(bits, replies);
+            for (int j = 0; j < replies.size(); j++) {
+                bits.makeMove(replies.get(j));
+                bits.unmakeMove();
+                assertRestored(made, bits);
+            }
+            bits.unmakeMove();
+            assertRestored(start, bits);
+        }
+    }
+
+    /**
+     * Compare the pieces, turn, castling rights, en passant position, move counters and
+     * hash of two bitboards
+     * @param expected
+     * @param actual
+     */
+    private static void assertRestored(BitBoard expected, BitBoard actual) {
+        for (int color = WHITE; color <= BLACK; color++) {
+            for (int type = PAWN; type <= KING; type++) {
+                assertEquals(expected.getPieces(color, type), actual.getPieces(color, type));
+            }
+        }
+        assertEquals(expected.getOccupied(), actual.getOccupied());
+        assertEquals(expected.getTurn(), actual.getTurn());
+        assertEquals(expected.getCastling(), actual.getCastling());
+        assertEquals(expected.getEnPassant(), actual.getEnPassant());
+        assertEquals(expected.getHalfMoves(), actual.getHalfMoves());
+        assertEquals(expected.getFullMoves(), actual.getFullMoves());
+        assertEquals(expected.getPly(), actual.getPly());
+        assertEquals(expected.getHash(), actual.getHash());
+    }
+
+    /**
+     * Test of toFen method, of class BitBoard, reading back every position in the perft
+     * suite and after each legal move from them.
+     */
+    @Test
+    public void testToFen() throws Exception {
+        System.out.println("toFen");
+        for (String line : Perft.loadSuite()) {
+            String fen = Perft.getFen(line);
+            BitBoard bits = new BitBoard(fen);
+            assertEquals(fen, bits.toFen());
+            MoveList list = MoveGenerator.generateLegalMoves(bits, new MoveList());
+            for (int i = 0; i < list.size(); i++) {
+                bits.makeMove(list.get(i));
+                BitBoard copy = new BitBoard(bits.toFen());
+                assertEquals(line, bits.getHash(), copy.getHash());
+                assertEquals(line, bits.toFen(), copy.toFen());
+                bits.unmakeMove();
+            }
+        }
+        assertEquals("rnbqkbnr/pppp1ppp/8/4p3/4P3/8/PPPP1PPP/RNBQKBNR w KQkq e6 0 2",
+                new BitBoard("rnbqkbnr/pppp1ppp/8/4p3/4P3/8/PPPP1PPP/RNBQKBNR w KQkq e6 0 2")
+                .toFen());
+    }
+
+    /**
+     * Test of getHash method, of class BitBoard, against computeHash for every move and
+     * take back two plies deep from each position in the perft suite.
+     */
+    @Test
+    public void testHashIncremental() throws Exception {
+        System.out.println("getHash incremental");
+        for (String line : Perft.loadSuite()) {
+            BitBoard bits = new BitBoard(Perft.getFen(line));
+            long start = bits.getHash();
+            assertEquals(start, bits.computeHash());
+            MoveList list = MoveGenerator.generateLegalMoves(bits, new MoveList());
+            MoveList replies = new MoveList();
+            for (int i = 0; i < list.size(); i++) {
+                bits.makeMove(list.get(i));
+                assertEquals(line, bits.computeHash(), bits.getHash());
+                MoveGenerator.generateLegalMoves(bits, replies);
+                for (int j = 0; j < replies.size(); j++) {
+                    bits.makeMove(replies.get(j));
+                    assertEquals(line, bits.computeHash(), bits.getHash());
+                    bits.unmakeMove();
+                }
+                bits.unmakeMove();
+                assertEquals(line, start, bits.getHash());
+            }
+        }
+    }
+
+    /**
+     * Test of getHash method, of class BitBoard, for the same position reached by
+     * different move orders.
+     */
+    @Test
+    public void testHashTransposition() {
+        System.out.println("getHash transposition");
+        Board first = new Board();
+        first.movePiece(6, 21);
+        first.movePiece(62, 45);
+        first.movePiece(1, 18);
+        first.movePiece(57, 42);
+        Board second = new Board();
+        second.movePiece(1, 18);
+        second.movePiece(57, 42);
+        second.movePiece(6, 21);
+        second.movePiece(62, 45);
+        assertEquals(first.getHash(), second.getHash());
+        assertEquals(new BitBoard(
+                "r1bqkb1r/pppppppp/2n2n2/8/8/2N2N2/PPPPPPPP/R1BQKB1R w KQkq - 4 3").getHash(),
+                first.getHash());
+
+        // The en passant position of a double pawn push only counts if a pawn can capture
+        Board pushed = new Board();
+        pushed.movePiece(12, 28);
+        assertEquals(pushed.getHash(), new BitBoard(
+                "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1").getHash());
+        assertFalse(pushed.getHash() == new Board().getHash());
+        first = new Board();
+        first.movePiece("E2", "E4");
+        first.movePiece("E7", "E5");
+        first.movePiece("G1", "F3");
+        first.movePiece("B8", "C6");
+        second = new Board();
+        second.movePiece("G1", "F3");
+        second.movePiece("B8", "C6");
+        second.movePiece("E2", "E4");
+        second.movePiece("E7", "E5");
+        assertEquals(first.getHash(), second.getHash());
+        assertEquals(second.getHash(), second.getBitBoard().computeHash());
+        assertFalse(new BitBoard("4k3/8/8/8/3pP3/8/8/4K3 b - e3 0 1").getHash()
+                == new BitBoard("4k3/8/8/8/3pP3/8/8/4K3 b - - 0 1").getHash());
+    }
+
+    /**
+     * Test of getMiddlegame, getEndgame and getPhase methods, of class BitBoard, against the
+     * sums over all pieces after every move and take back from each position in the suite.
+     */
+    @Test
+    public void testScoreIncremental() throws Exception {
+        System.out.println("getMiddlegame incremental");
+        for (String line : Perft.loadSuite()) {
+            BitBoard bits = new BitBoard(Perft.getFen(line));
+            assertScore(line, bits);
+            MoveList list = MoveGenerator.generateLegalMoves(bits, new MoveList());
+            for (int i = 0; i < list.size(); i++) {
+                bits.makeMove(list.get(i));
+                assertScore(line, bits);
+                bits.unmakeMove();
+                assertScore(line, bits);
+            }
+        }
+        assertEquals(PieceSquareTables.MAX_PHASE, new Board().getBitBoard().getPhase());
+        assertEquals(0, new Board().getBitBoard().getMiddlegame());
+    }
+
+    /**
+     * Compare the incremental scores of a bitboard with the sums over its pieces
+     * @param message
+     * @param bits
+     */
+    private static void assertScore(String message, BitBoard bits) {
+        int middlegame = 0, endgame = 0, phase = 0;
+        for (int position = 0; position < 64; position++) {
+            if (!bits.isEmpty(position)) {
+                int index = BitBoard.getIndex(bits.getColor(position), bits.getType(position));
+                middlegame += PieceSquareTables.getMiddlegame(index, position);
+                endgame += PieceSquareTables.getEndgame(index, position);
+                phase += PieceSquareTables.getPhase(index);
+            }
+        }
+        assertEquals(message, middlegame, bits.getMiddlegame());
+        assertEquals(message, endgame, bits.getEndgame());
+        assertEquals(message, phase, bits.getPhase());
+    }
+
+}
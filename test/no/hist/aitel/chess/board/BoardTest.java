@@ -0,0 +1,104 @@
+/*
+ * BoardTest.java
+ *
+ */
+
+package no.hist.aitel.chess.board;
+
+import no.hist.aitel.chess.piece.Piece;
+import no.hist.aitel.chess.position.IllegalPositionException;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static no.hist.aitel.chess.piece.PieceConstants.*;
+
+/**
+ *
+ * @author martin
+ */
+public class BoardTest {
+
+    public BoardTest() {
+    }
+
+    /**
+     * Test of fromFen and toFen methods, of class Board.
+     */
+    @Test
+    public void testFromFen() throws BoardException {
+        System.out.println("fromFen");
+        Board initial = new Board();
+        String start = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+        Board board = Board.fromFen(start);
+        assertEquals(start, board.toFen());
+        assertEquals(initial.getHash(), board.getHash());
+        for (int position = 0; position < 64; position++) {
+            Piece expected = initial.getPiece(position);
+            Piece piece = board.getPiece(position);
+            assertEquals(expected.getId(), piece.getId());
+            assertEquals(expected.getType(), piece.getType());
+            assertEquals(expected.isMoved(), piece.isMoved());
+        }
+
+        // Pieces away from their initial positions get free ids of their color, and only
+        // kings and rooks with castling rights are unmoved
+        board = Board.fromFen("r3k2r/8/8/8/8/8/7Q/R3K2R b Kq - 3 20");
+        assertEquals(0, board.getPiece(0).getId());
+        assertEquals(4, board.getPiece(4).getId());
+        assertEquals(7, board.getPiece(7).getId());
+        assertEquals(1, board.getPiece(15).getId());
+        assertEquals(56, board.getPiece(56).getId());
+        assertTrue(board.getPiece(0).isMoved());
+        assertFalse(board.getPiece(7).isMoved());
+        assertTrue(board.getPiece(63).isMoved());
+        assertEquals(BLACK, board.getTurn());
+
+        // The board can be played on, black castles queenside
+        board.movePiece(60, 58);
+        assertEquals(ROOK, board.getPiece(59).getType());
+        assertEquals("2kr3r/8/8/8/8/8/7Q/R3K2R w K - 4 21", board.toFen());
+
+        // Check mate is found from the FEN
+        assertTrue(Board.fromFen("R5k1/5ppp/8/8/8/8/8/6K1 b - - 1 1").isCheckMate());
+
+        try {
+            Board.fromFen("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP w KQkq - 0 1");
+            fail("Missing rank");
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            Board.fromFen("4k3/8/8/8/8/8/8/4K3 wK - 0 1");
+            fail("Missing separator");
+        } catch (IllegalArgumentException e) {
+        }
+        try {
+            Board.fromFen("4k3/8/8/8/8/8/8/4K3 w - e3- 0 1");
+            fail("Invalid en passant position");
+        } catch (IllegalArgumentException e) {
+        }
+
+        // Castling rights without the rook on its initial position are dropped
+        board = Board.fromFen("4k3/8/8/8/8/8/8/4K3 w K - 0 1");
+        assertEquals("4k3/8/8/8/8/8/8/4K3 w - - 0 1", board.toFen());
+        MoveList list = MoveGenerator.generateLegalMoves(board);
+        for (int i = 0; i < list.size(); i++) {
+            assertFalse(Move.getFlag(list.get(i)) == Move.CASTLING);
+        }
+        try {
+            board.movePiece(4, 6);
+            fail("Castling without a rook");
+        } catch (IllegalPositionException e) {
+        }
+        assertEquals(KING, board.getPiece(4).getType());
+
+        // En passant positions no pawn can just have passed are dropped
+        assertEquals("4k3/8/8/3P4/8/8/8/4K3 w - - 0 1",
+                Board.fromFen("4k3/8/8/3P4/8/8/8/4K3 w - e6 0 1").toFen());
+        assertEquals("4k3/8/8/3PP3/8/8/8/4K3 w - - 0 1",
+                Board.fromFen("4k3/8/8/3PP3/8/8/8/4K3 w - e6 0 1").toFen());
+        assertEquals("4k3/8/8/3Pp3/8/8/8/4K3 b - - 0 1",
+                Board.fromFen("4k3/8/8/3Pp3/8/8/8/4K3 b - e6 0 1").toFen());
+        assertEquals("4k3/8/8/3Pp3/8/8/8/4K3 w - e6 0 1",
+                Board.fromFen("4k3/8/8/3Pp3/8/8/8/4K3 w - e6 0 1").toFen());
+    }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * MoveGeneratorTest.java
+ *
+ */
+
+package no.hist.aitel.chess.board;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static no.hist.aitel.chess.piece.PieceConstants.*;
+
+/**
+ *
+ * @author martin
+ */
+public class MoveGeneratorTest {
+
+    public MoveGeneratorTest() {
+    }
+
+    /**
+     * Test of generateLegalMoves method, of class MoveGenerator.
+     */
+    @Test
+    public void testGenerateLegalMoves() throws BoardException {
+        System.out.println("generateLegalMoves");
+        Board board = new Board();
+        assertEquals(20, MoveGenerator.generateLegalMoves(board).size());
+
+        // Castling and en passant
+        board.movePiece("E2", "E4");
+        board.movePiece("D7", "D5");
+        board.movePiece("G1", "F3");
+        board.movePiece("B8", "C6");
+        board.movePiece("F1", "C4");
+        board.movePiece("C8", "G4");
+        board.movePiece("E4", "E5");
+        board.movePiece("F7", "F5");
+        MoveList list = MoveGenerator.generateLegalMoves(board);
+        assertTrue(list.contains(Move.create(4, 6, Move.CASTLING)));
+        assertTrue(list.contains(Move.create(36, 45, Move.EN_PASSANT)));
+        assertFalse(list.contains(Move.create(4, 2, Move.CASTLING)));
+
+        // Promotions, and no moves which leave the king in check
+        BitBoard bits = new BitBoard();
+        bits.setPiece(4, WHITE, KING);
+        bits.setPiece(48, WHITE, PAWN);
+        bits.setPiece(63, BLACK, KING);
+        bits.setPiece(43, BLACK, ROOK);
+        list = MoveGenerator.generateLegalMoves(bits, new MoveList());
+        assertEquals(7, list.size());
+        assertTrue(list.contains(Move.createPromotion(48, 56, QUEEN)));
+        assertTrue(list.contains(Move.createPromotion(48, 56, KNIGHT)));
+        assertFalse(list.contains(Move.create(4, 3, Move.NORMAL)));
+    }
+
+    /**
+     * Test of isDraw method, of class MoveGenerator.
+     */
+    @Test
+    public void testIsDraw() {
+        System.out.println("isDraw");
+        assertFalse(MoveGenerator.isDraw(new BitBoard(
+                "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1")));
+        // Stale mate
+        assertTrue(MoveGenerator.isDraw(new BitBoard("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1")));
+
+        // Fifty moves without a capture or pawn move, unless the last one mates
+        assertTrue(MoveGenerator.isDraw(new BitBoard("6k1/5ppp/8/8/8/8/8/R5K1 w - - 100 80")));
+        assertFalse(MoveGenerator.isDraw(new BitBoard("6k1/5ppp/8/8/8/8/8/R5K1 w - - 99 80")));
+        BitBoard mate = new BitBoard("R5k1/5ppp/8/8/8/8/8/6K1 b - - 100 80");
+        assertTrue(MoveGenerator.isCheckMate(mate));
+        assertFalse(MoveGenerator.isDraw(mate));
+
+        // Insufficient material, bishops all on the same color
+        assertTrue(MoveGenerator.isDraw(new BitBoard("4k3/8/8/8/8/8/8/4K3 w - - 0 1")));
+        assertTrue(MoveGenerator.isDraw(new BitBoard("4k3/8/8/8/8/8/8/3NK3 w - - 0 1")));
+        assertTrue(MoveGenerator.isDraw(new BitBoard("2b1k3/8/8/8/8/8/8/3BK3 w - - 0 1")));
+        assertFalse(MoveGenerator.isDraw(new BitBoard("3bk3/8/8/8/8/8/8/3BK3 w - - 0 1")));
+        assertFalse(MoveGenerator.isDraw(new BitBoard("4k3/8/8/8/8/8/8/2NNK3 w - - 0 1")));
+        assertFalse(MoveGenerator.isDraw(new BitBoard("4k3/8/8/8/8/8/8/3RK3 w - - 0 1")));
+        assertFalse(MoveGenerator.isDraw(new BitBoard("4k3/8/8/8/8/8/4P3/4K3 w - - 0 1")));
+    }
+
+}
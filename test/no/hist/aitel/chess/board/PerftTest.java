@@ -0,0 +1,62 @@
+/*
+ * PerftTest.java
+ *
+ */
+
+package no.hist.aitel.chess.board;
+
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author martin
+ */
+public class PerftTest {
+
+    public PerftTest() {
+    }
+
+    /**
+     * Test of perft method, of class Perft, against the bundled suite.
+     * Depth is limited to keep the test fast, run Perft.main for the full suite.
+     */
+    @Test
+    public void testSuite() throws Exception {
+        System.out.println("perft suite");
+        List<String> suite = Perft.loadSuite();
+        assertFalse(suite.isEmpty());
+        for (String line : suite) {
+            Perft perft = new Perft(new BitBoard(Perft.getFen(line)));
+            for (int depth = 1; depth <= 3; depth++) {
+                assertEquals(line, Perft.getExpected(line, depth), perft.perft(depth));
+            }
+        }
+    }
+
+    /**
+     * Test of perft method, of class Perft, from a new board.
+     */
+    @Test
+    public void testNewBoard() {
+        System.out.println("perft new board");
+        Board board = new Board();
+        assertEquals(197281, new Perft(board).perft(4));
+        // Counting must leave the board as it was
+        assertEquals(20, MoveGenerator.generateLegalMoves(board).size());
+        assertEquals(0, board.getBitBoard().getPly());
+    }
+
+    /**
+     * Test of divide method, of class Perft.
+     */
+    @Test
+    public void testDivide() {
+        System.out.println("divide");
+        String result = new Perft(new Board()).divide(2);
+        assertTrue(result.contains("e2e4: 20"));
+        assertTrue(result.endsWith("Nodes searched: 400"));
+    }
+
+}
@@ -0,0 +1,108 @@
+/*
+ * PolyglotKeyTest.java
+ *
+ */
+
+package no.hist.aitel.chess.board;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author martin
+ */
+public class PolyglotKeyTest {
+
+    public PolyglotKeyTest() {
+    }
+
+    /**
+     * Get keys made from random numbers
+     * @return The keys
+     */
+    public static PolyglotKey createKeys() {
+        Random random = new Random(781);
+        long[] randoms = new long[PolyglotKey.SIZE];
+        for (int i = 0; i < randoms.length; i++) {
+            randoms[i] = random.nextLong();
+        }
+        return new PolyglotKey(randoms);
+    }
+
+    /**
+     * Test of load method, of class PolyglotKey.
+     */
+    @Test
+    public void testLoad() throws IOException {
+        System.out.println("load");
+        StringBuilder text = new StringBuilder("/* Random64 */\nconst u64 Random64[781] = {\n");
+        for (int i = 0; i < PolyglotKey.SIZE; i++) {
+            // All zero but the last, the side number
+            text.append("   0x000000000000000" + (i == PolyglotKey.SIZE - 1 ? 1 : 0) + "ULL,\n");
+        }
+        text.append("};\n");
+        PolyglotKey keys = PolyglotKey.load(new ByteArrayInputStream(text.toString().getBytes()));
+        assertEquals(1, keys.getKey(new BitBoard("8/8/8/8/8/8/8/K6k w - - 0 1")));
+        assertEquals(0, keys.getKey(new BitBoard("8/8/8/8/8/8/8/K6k b - - 0 1")));
+
+        try {
+            PolyglotKey.load(new ByteArrayInputStream("0x0000000000000001".getBytes()));
+            fail("Too few numbers");
+        } catch (IOException e) {
+        }
+    }
+
+    /**
+     * Test of load method, of class PolyglotKey, with the bundled numbers and the keys given
+     * in the Polyglot format description.
+     */
+    @Test
+    public void testLoadBundled() throws IOException {
+        System.out.println("load bundled");
+        PolyglotKey keys = PolyglotKey.load();
+        assertEquals(0x463b96181691fc9cL, keys.getKey(new Board().getBitBoard()));
+        assertEquals(0x823c9b50fd114196L, keys.getKey(new BitBoard(
+                "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1")));
+        assertEquals(0x22a48b5a8e47ff78L, keys.getKey(new BitBoard(
+                "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3")));
+        assertEquals(0x00fdd303c946bdd9L, keys.getKey(new BitBoard(
+                "rnbq1bnr/ppp1pkpp/8/3pPp2/8/8/PPPPKPPP/RNBQ1BNR w - - 0 4")));
+        assertEquals(0x5c3f9b829b279560L, keys.getKey(new BitBoard(
+                "rnbqkbnr/p1pppppp/8/8/P6P/R1p5/1P1PPPP1/1NBQKBNR b Kkq - 0 4")));
+    }
+
+    /**
+     * Test of getKey method, of class PolyglotKey.
+     */
+    @Test
+    public void testGetKey() {
+        System.out.println("getKey");
+        PolyglotKey keys = createKeys();
+        // The en passant file only counts when a pawn can capture
+        assertEquals(keys.getKey(new BitBoard(
+                "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1")),
+                keys.getKey(new BitBoard(
+                "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1")));
+        assertFalse(keys.getKey(new BitBoard(
+                "rnbqkbnr/ppp1pppp/8/8/3pP3/8/PPPP1PPP/RNBQKBNR b KQkq - 0 1"))
+                == keys.getKey(new BitBoard(
+                "rnbqkbnr/ppp1pppp/8/8/3pP3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1")));
+
+        // The key doesn't depend on the order moves were made in
+        BitBoard bits = new Board().getBitBoard();
+        bits.makeMove(Move.create(6, 21, Move.NORMAL));
+        bits.makeMove(Move.create(62, 45, Move.NORMAL));
+        bits.makeMove(Move.create(1, 18, Move.NORMAL));
+        long key = keys.getKey(bits);
+        bits = new Board().getBitBoard();
+        bits.makeMove(Move.create(1, 18, Move.NORMAL));
+        bits.makeMove(Move.create(62, 45, Move.NORMAL));
+        bits.makeMove(Move.create(6, 21, Move.NORMAL));
+        assertEquals(key, keys.getKey(bits));
+    }
+
+}
@@ -0,0 +1,82 @@
+/*
+ * EngineTest.java
+ *
+ */
+
+package no.hist.aitel.chess.engine;
+
+import no.hist.aitel.chess.board.BitBoard;
+import no.hist.aitel.chess.board.Board;
+import no.hist.aitel.chess.board.Move;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static no.hist.aitel.chess.engine.EngineConstants.*;
+
+/**
+ *
+ * @author martin
+ */
+public class EngineTest {
+
+    public EngineTest() {
+    }
+
+    /**
+     * Test of bestMove method, of class Engine, with a mate in one.
+     */
+    @Test
+    public void testMateInOne() {
+        System.out.println("bestMove mate in one");
+        Engine engine = new Engine();
+        BitBoard bits = new BitBoard("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+        int move = engine.bestMove(bits, new SearchLimits(4, 0));
+        assertEquals("a1a8", Move.toString(move));
+        assertEquals(MATE - 1, engine.getScore());
+        // The searched position is left as it was
+        assertEquals(0, bits.getPly());
+    }
+
+    /**
+     * Test of bestMove method, of class Engine, with a queen left hanging.
+     */
+    @Test
+    public void testCapture() {
+        System.out.println("bestMove capture");
+        Engine engine = new Engine();
+        int move = engine.bestMove(new BitBoard("4k3/8/8/3q4/8/8/3R4/4K3 w - - 0 1"),
+                new SearchLimits(3, 0));
+        assertEquals("d2d5", Move.toString(move));
+    }
+
+    /**
+     * Test of bestMove method, of class Engine, from a new board within a time limit.
+     */
+    @Test
+    public void testNewBoard() {
+        System.out.println("bestMove new board");
+        Engine engine = new Engine();
+        Board board = new Board();
+        int move = engine.bestMove(board, new SearchLimits(0, 200));
+        assertTrue(Move.toString(move), move != Move.NONE);
+        assertTrue(engine.getDepth() > 0);
+        board.movePiece(Move.getFrom(move), Move.getTo(move));
+    }
+
+    /**
+     * Test of bestMove method, of class Engine, with helper threads.
+     */
+    @Test
+    public void testThreads() {
+        System.out.println("bestMove threads");
+        Engine engine = new Engine();
+        engine.setThreads(3);
+        int move = engine.bestMove(new BitBoard("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1"),
+                new SearchLimits(4, 0));
+        assertEquals("a1a8", Move.toString(move));
+        move = engine.bestMove(new BitBoard("4k3/8/8/3q4/8/8/3R4/4K3 w - - 0 1"),
+                new SearchLimits(5, 0));
+        assertEquals("d2d5", Move.toString(move));
+        assertEquals(5, engine.getDepth());
+    }
+
+}
@@ -0,0 +1,54 @@
+/*
+ * MoveOrderTest.java
+ *
+ */
+
+package no.hist.aitel.chess.engine;
+
+import no.hist.aitel.chess.board.BitBoard;
+import no.hist.aitel.chess.board.Move;
+import no.hist.aitel.chess.board.MoveGenerator;
+import no.hist.aitel.chess.board.MoveList;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static no.hist.aitel.chess.piece.PieceConstants.*;
+
+/**
+ *
+ * @author martin
+ */
+public class MoveOrderTest {
+
+    public MoveOrderTest() {
+    }
+
+    /**
+     * Test of score and next methods, of class MoveOrder.
+     */
+    @Test
+    public void testOrder() {
+        System.out.println("order");
+        // The white queen on D4 and the knight on C3 can both take the rook on D5, and the
+        // knight the pawn on B5
+        BitBoard bits = new BitBoard("4k3/8/8/1p1r4/3Q4/2N5/8/4K3 w - - 0 1");
+        MoveList list = new MoveList();
+        MoveGenerator.generateLegalMoves(bits, list);
+        int hashMove = Move.create(4, 12, Move.NORMAL);
+        int killer = Move.create(4, 5, Move.NORMAL);
+        MoveOrder order = new MoveOrder();
+        order.addCutoff(BLACK, Move.create(60, 59, Move.NORMAL), 4, 0);
+        order.addCutoff(WHITE, killer, 1, 0);
+        order.addCutoff(WHITE, Move.create(27, 63, Move.NORMAL), 8, 3);
+        order.score(bits, list, 0, hashMove);
+
+        assertEquals(hashMove, order.next(list, 0, 0));
+        // The rook by the knight, then by the queen, then the pawn
+        assertEquals(Move.create(18, 35, Move.NORMAL), order.next(list, 0, 1));
+        assertEquals(Move.create(27, 35, Move.NORMAL), order.next(list, 0, 2));
+        assertEquals(Move.create(18, 33, Move.NORMAL), order.next(list, 0, 3));
+        assertEquals(killer, order.next(list, 0, 4));
+        // The quiet move with the most history
+        assertEquals(Move.create(27, 63, Move.NORMAL), order.next(list, 0, 5));
+    }
+
+}
@@ -0,0 +1,96 @@
+/*
+ * OpeningBookTest.java
+ *
+ */
+
+package no.hist.aitel.chess.engine;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import no.hist.aitel.chess.board.BitBoard;
+import no.hist.aitel.chess.board.Board;
+import no.hist.aitel.chess.board.Move;
+import no.hist.aitel.chess.board.MoveList;
+import no.hist.aitel.chess.board.PolyglotKey;
+import no.hist.aitel.chess.board.PolyglotKeyTest;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author martin
+ */
+public class OpeningBookTest {
+
+    public OpeningBookTest() {
+    }
+
+    /**
+     * Test of getMoves and getMove methods, of class OpeningBook.
+     */
+    @Test
+    public void testGetMoves() throws IOException {
+        System.out.println("getMoves");
+        PolyglotKey keys = PolyglotKeyTest.createKeys();
+        BitBoard start = new Board().getBitBoard();
+        BitBoard castling = new BitBoard("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1");
+        long[] sorted = {keys.getKey(start), keys.getKey(castling)};
+        // Entries are sorted by key as unsigned numbers
+        if ((sorted[0] ^ Long.MIN_VALUE) > (sorted[1] ^ Long.MIN_VALUE)) {
+            sorted = new long[] {sorted[1], sorted[0]};
+        }
+
+        File file = File.createTempFile("book", ".bin");
+        file.deleteOnExit();
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+        try {
+            for (int i = 0; i < sorted.length; i++) {
+                if (sorted[i] == keys.getKey(start)) {
+                    // e2e4 three times as often as d2d4, and an illegal e2e5 skipped
+                    writeEntry(out, sorted[i], 12, 28, 0, 3);
+                    writeEntry(out, sorted[i], 11, 27, 0, 1);
+                    writeEntry(out, sorted[i], 12, 36, 0, 1);
+                } else {
+                    // Castling kingside, written as the king taking the rook
+                    writeEntry(out, sorted[i], 4, 7, 0, 1);
+                }
+            }
+        } finally {
+            out.close();
+        }
+
+        OpeningBook book = new OpeningBook(file, keys);
+        assertEquals(4, book.getSize());
+        int[] weights = new int[MoveList.SIZE];
+        MoveList list = book.getMoves(start, new MoveList(), weights);
+        assertEquals(2, list.size());
+        assertEquals("e2e4", Move.toString(list.get(0)));
+        assertEquals(3, weights[0]);
+        assertEquals("d2d4", Move.toString(list.get(1)));
+        assertEquals(1, weights[1]);
+
+        assertEquals(Move.create(4, 6, Move.CASTLING), book.getMove(castling));
+        assertEquals(Move.NONE, book.getMove(
+                new BitBoard("4k3/8/8/8/8/8/8/4K3 w - - 0 1")));
+    }
+
+    /**
+     * Write a book entry
+     * @param out
+     * @param key
+     * @param from
+     * @param to
+     * @param promotion
+     * @param weight
+     */
+    private static void writeEntry(DataOutputStream out, long key, int from, int to,
+            int promotion, int weight) throws IOException {
+        out.writeLong(key);
+        out.writeShort((promotion << 12) | (from << 6) | to);
+        out.writeShort(weight);
+        out.writeInt(0);
+    }
+
+}
@@ -0,0 +1,59 @@
+/*
+ * PawnTableTest.java
+ *
+ */
+
+package no.hist.aitel.chess.engine;
+
+import no.hist.aitel.chess.board.BitBoard;
+import no.hist.aitel.chess.board.Board;
+import no.hist.aitel.chess.board.Move;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author martin
+ */
+public class PawnTableTest {
+
+    public PawnTableTest() {
+    }
+
+    /**
+     * Test of evaluate method, of class PawnTable.
+     */
+    @Test
+    public void testEvaluate() {
+        System.out.println("evaluate pawns");
+        // Nothing to score in the initial position
+        assertEquals(0, PawnTable.evaluate(new Board().getBitBoard()));
+
+        // White has doubled isolated pawns on the E file where the front one is passed,
+        // black an isolated passed pawn on A3
+        int score = PawnTable.evaluate(new BitBoard("4k3/8/8/8/4P3/p3P3/8/4K3 w - - 0 1"));
+        assertEquals(-10 - 10 - 10 + 15 + 10 - 40, PawnTable.getMiddlegame(score));
+        assertEquals(-20 - 15 - 15 + 35 + 15 - 90, PawnTable.getEndgame(score));
+
+        // A passed pawn is scored for its own side
+        score = PawnTable.evaluate(new BitBoard("4k3/8/8/3P4/8/8/8/4K3 w - - 0 1"));
+        assertEquals(25 - 10, PawnTable.getMiddlegame(score));
+        assertEquals(60 - 15, PawnTable.getEndgame(score));
+    }
+
+    /**
+     * Test of probe method, of class PawnTable.
+     */
+    @Test
+    public void testProbe() {
+        System.out.println("probe");
+        PawnTable table = new PawnTable(16);
+        BitBoard bits = new Board().getBitBoard();
+        assertEquals(0, table.probe(bits));
+        // Moving a knight doesn't change the pawns, so the score is cached
+        bits.makeMove(Move.create(6, 21, Move.NORMAL));
+        assertEquals(0, table.probe(bits));
+        assertEquals(0.5, table.getHitRate(), 0);
+    }
+
+}
@@ -0,0 +1,49 @@
+/*
+ * StaticExchangeTest.java
+ *
+ */
+
+package no.hist.aitel.chess.engine;
+
+import no.hist.aitel.chess.board.BitBoard;
+import no.hist.aitel.chess.board.Move;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static no.hist.aitel.chess.piece.PieceConstants.*;
+
+/**
+ *
+ * @author martin
+ */
+public class StaticExchangeTest {
+
+    public StaticExchangeTest() {
+    }
+
+    /**
+     * Test of evaluate method, of class StaticExchange.
+     */
+    @Test
+    public void testEvaluate() {
+        System.out.println("evaluate exchange");
+        StaticExchange exchange = new StaticExchange();
+
+        // Undefended pawn
+        BitBoard bits = new BitBoard("1k1r4/1pp4p/p7/4p3/8/P5P1/1PP4P/2K1R3 w - - 0 1");
+        assertEquals(100, exchange.evaluate(bits, Move.create(4, 36, Move.NORMAL)));
+
+        // Knight takes pawn, then both sides recapture with pieces lined up behind each other
+        bits = new BitBoard("1k1r3q/1ppn3p/p4b2/4p3/8/P2N2P1/1PP1R1BP/2K1Q3 w - - 0 1");
+        assertEquals(100 - 320, exchange.evaluate(bits, Move.create(19, 36, Move.NORMAL)));
+
+        // Queen takes a pawn defended by a pawn
+        bits = new BitBoard("4k3/8/2p5/3p4/8/8/8/3QK3 w - - 0 1");
+        assertEquals(100 - 900, exchange.evaluate(bits, Move.create(3, 35, Move.NORMAL)));
+
+        // Capturing promotion which can't be recaptured
+        bits = new BitBoard("1r2k3/P7/8/8/8/8/8/4K3 w - - 0 1");
+        assertEquals(500 + 900 - 100,
+                exchange.evaluate(bits, Move.createPromotion(48, 57, QUEEN)));
+    }
+
+}
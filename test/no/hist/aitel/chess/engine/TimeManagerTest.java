@@ -0,0 +1,75 @@
+/*
+ * TimeManagerTest.java
+ *
+ */
+
+package no.hist.aitel.chess.engine;
+
+import no.hist.aitel.chess.board.Move;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author martin
+ */
+public class TimeManagerTest {
+
+    public TimeManagerTest() {
+    }
+
+    /**
+     * Test of isHardLimit method, of class TimeManager.
+     */
+    @Test
+    public void testHardLimit() {
+        System.out.println("isHardLimit");
+        assertFalse(new TimeManager(new SearchLimits(), 0).isLimited());
+
+        // A fixed time is used as it is
+        TimeManager timer = new TimeManager(new SearchLimits(0, 500), 1000);
+        assertTrue(timer.isLimited());
+        assertFalse(timer.isHardLimit(1499));
+        assertTrue(timer.isHardLimit(1500));
+
+        // A minute for the rest of the game is shared between 30 moves, and a search may use
+        // up to four times its share
+        SearchLimits limits = new SearchLimits();
+        limits.setClock(60000);
+        timer = new TimeManager(limits, 0);
+        assertFalse(timer.isHardLimit(4 * 1998 - 1));
+        assertTrue(timer.isHardLimit(4 * 1998));
+
+        // Never more than half the clock, unless it is the last move before the time control
+        limits.setClock(1000);
+        limits.setIncrement(2000);
+        assertTrue(new TimeManager(limits, 0).isHardLimit(475));
+        limits.setMovesToGo(1);
+        assertFalse(new TimeManager(limits, 0).isHardLimit(949));
+        assertTrue(new TimeManager(limits, 0).isHardLimit(950));
+    }
+
+    /**
+     * Test of isSoftLimit method, of class TimeManager.
+     */
+    @Test
+    public void testSoftLimit() {
+        System.out.println("isSoftLimit");
+        SearchLimits limits = new SearchLimits();
+        limits.setClock(60000);
+        int move = Move.create(12, 28, Move.DOUBLE_PAWN);
+        int other = Move.create(11, 27, Move.DOUBLE_PAWN);
+
+        // A new best move gets more time than its share
+        TimeManager timer = new TimeManager(limits, 0);
+        assertFalse(timer.isSoftLimit(move, 2000));
+        assertTrue(timer.isSoftLimit(other, 2398));
+
+        // A best move which stays the same gets less
+        timer = new TimeManager(limits, 0);
+        assertFalse(timer.isSoftLimit(move, 1000));
+        assertFalse(timer.isSoftLimit(move, 1500));
+        assertTrue(timer.isSoftLimit(move, 1800));
+    }
+
+}
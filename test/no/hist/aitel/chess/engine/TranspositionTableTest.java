@@ -0,0 +1,69 @@
+/*
+ * TranspositionTableTest.java
+ *
+ */
+
+package no.hist.aitel.chess.engine;
+
+import no.hist.aitel.chess.board.Move;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static no.hist.aitel.chess.engine.EngineConstants.*;
+
+/**
+ *
+ * @author martin
+ */
+public class TranspositionTableTest {
+
+    public TranspositionTableTest() {
+    }
+
+    /**
+     * Test of store and probe methods, of class TranspositionTable.
+     */
+    @Test
+    public void testStoreAndProbe() {
+        System.out.println("store and probe");
+        TranspositionTable table = new TranspositionTable(1);
+        assertEquals(65536, table.getSize());
+        long hash = 0x123456789ABCDEFL;
+        int move = Move.create(12, 28, Move.DOUBLE_PAWN);
+        assertEquals(0, table.probe(hash));
+
+        table.store(hash, move, -250, 7, TranspositionTable.LOWER, 3);
+        long entry = table.probe(hash);
+        assertEquals(move, TranspositionTable.getMove(entry));
+        assertEquals(-250, TranspositionTable.getScore(entry, 3));
+        assertEquals(7, TranspositionTable.getDepth(entry));
+        assertEquals(TranspositionTable.LOWER, TranspositionTable.getBound(entry));
+
+        // Another position in the same entry is a miss
+        assertEquals(0, table.probe(hash ^ (1L << 40)));
+
+        // A shallower result doesn't replace a deeper one
+        table.store(hash, Move.NONE, 100, 2, TranspositionTable.UPPER, 3);
+        assertEquals(7, TranspositionTable.getDepth(table.probe(hash)));
+
+        table.clear();
+        assertEquals(0, table.probe(hash));
+    }
+
+    /**
+     * Test of getScore method, of class TranspositionTable, with mate scores found at one
+     * ply and read at another.
+     */
+    @Test
+    public void testMateScore() {
+        System.out.println("mate score");
+        TranspositionTable table = new TranspositionTable(1);
+        long hash = 42;
+        // Mate in 5 plies from the root, found 2 plies from the root
+        table.store(hash, Move.NONE, MATE - 5, 4, TranspositionTable.EXACT, 2);
+        long entry = table.probe(hash);
+        assertEquals(MATE - 5, TranspositionTable.getScore(entry, 2));
+        // The same position 4 plies from the root is mated one move later
+        assertEquals(MATE - 7, TranspositionTable.getScore(entry, 4));
+    }
+
+}
@@ -0,0 +1,130 @@
+/*
+ * UciMainTest.java
+ *
+ */
+
+package no.hist.aitel.chess.engine;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author martin
+ */
+public class UciMainTest {
+
+    public UciMainTest() {
+    }
+
+    /**
+     * Test of run method, of class UciMain.
+     */
+    @Test
+    public void testRun() throws IOException {
+        System.out.println("run");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        UciMain uci = new UciMain(new PrintStream(bytes));
+        uci.run(new BufferedReader(new StringReader("uci\n"
+                + "setoption name Hash value 1\n"
+                + "position startpos moves e2e4 e7e5 g1f3\n"
+                + "go depth 3\n"
+                + "isready\n"
+                + "position startpos moves e2e5\n"
+                + "quit\n")));
+        String output = bytes.toString();
+        assertTrue(output, output.contains("uciok"));
+        assertTrue(output, output.contains("readyok"));
+        assertTrue(output, output.contains("info depth 3 "));
+        // Each completed iteration is reported
+        assertTrue(output, output.contains("info depth 1 "));
+        assertTrue(output, output.contains("info depth 2 "));
+        assertTrue(output, output.matches("(?s).*info depth 2 score cp -?\\d+ nodes \\d+ time \\d+ pv"
+                + " \\w+ \\w+\n.*"));
+        assertTrue(output, output.contains("Illegal move: e2e5"));
+
+        // Black is to move after 1. e4 e5 2. Nf3, and the pawn on E5 is blocked
+        int index = output.indexOf("bestmove ");
+        assertTrue(output, index >= 0);
+        char rank = output.charAt(index + 10);
+        assertTrue(output, rank == '7' || rank == '8');
+    }
+
+    /**
+     * Test of run method, of class UciMain, stopping before the search has started.
+     */
+    @Test(timeout = 10000)
+    public void testStopAtOnce() throws IOException {
+        System.out.println("stop at once");
+        for (int i = 0; i < 20; i++) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            UciMain uci = new UciMain(new PrintStream(bytes));
+            uci.run(new BufferedReader(new StringReader("position startpos\n"
+                    + "go infinite\n"
+                    + "stop\n"
+                    + "quit\n")));
+            String output = bytes.toString();
+            assertTrue(output, output.contains("bestmove "));
+            assertFalse(output, output.contains("bestmove 0000"));
+        }
+    }
+
+    /**
+     * Test of execute method, of class UciMain, with searches which end by themselves at once
+     * while the GUI decides when the move is sent.
+     */
+    @Test(timeout = 10000)
+    public void testInfinite() throws InterruptedException {
+        System.out.println("infinite");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        UciMain uci = new UciMain(new PrintStream(bytes));
+        // Check mate, no legal moves
+        uci.execute("position startpos moves f2f3 e7e5 g2g4 d8h4");
+        uci.execute("go infinite");
+        Thread.sleep(200);
+        assertFalse(bytes.toString(), bytes.toString().contains("bestmove"));
+        uci.execute("stop");
+        assertTrue(bytes.toString(), bytes.toString().contains("bestmove 0000"));
+
+        // Mate in one is found at once
+        bytes.reset();
+        uci.execute("position startpos moves f2f3 e7e5 g2g4");
+        uci.execute("go ponder wtime 1000 btime 1000");
+        Thread.sleep(200);
+        assertFalse(bytes.toString(), bytes.toString().contains("bestmove"));
+        uci.execute("ponderhit");
+        uci.execute("isready");
+        // Waits for the search
+        uci.execute("position startpos");
+        assertTrue(bytes.toString(), bytes.toString().contains("bestmove d8h4"));
+
+        // A new position stops an infinite search
+        bytes.reset();
+        uci.execute("go infinite");
+        uci.execute("position startpos");
+        assertTrue(bytes.toString(), bytes.toString().contains("bestmove "));
+        assertFalse(uci.execute("quit"));
+    }
+
+    /**
+     * Test of execute method, of class UciMain, with no time left on the clock.
+     */
+    @Test(timeout = 10000)
+    public void testNoTimeLeft() {
+        System.out.println("no time left");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        UciMain uci = new UciMain(new PrintStream(bytes));
+        uci.execute("position startpos");
+        uci.execute("go wtime 0 btime 0");
+        // Waits for the search, which must end by itself
+        uci.execute("position startpos");
+        assertTrue(bytes.toString(), bytes.toString().contains("bestmove "));
+        assertFalse(bytes.toString(), bytes.toString().contains("bestmove 0000"));
+    }
+
+}
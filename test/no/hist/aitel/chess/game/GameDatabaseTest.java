@@ -0,0 +1,207 @@
+/*
+ * GameDatabaseTest.java
+ *
+ */
+
+package no.hist.aitel.chess.game;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import no.hist.aitel.chess.board.Board;
+import no.hist.aitel.chess.board.BoardException;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author martin
+ */
+public class GameDatabaseTest {
+
+    public GameDatabaseTest() {
+    }
+
+    /**
+     * Test of add, find and getGame methods, of class GameDatabase.
+     */
+    @Test
+    public void testFind() throws IOException, BoardException {
+        System.out.println("find");
+        File file = File.createTempFile("games", ".chdb");
+        file.delete();
+        File index = new File(file.getPath() + ".idx");
+        file.deleteOnExit();
+        index.deleteOnExit();
+
+        GameDatabase database = new GameDatabase(file);
+        long e4 = database.add(play("A", "E2", "E4", "E7", "E5", "G1", "F3"));
+        long d4 = database.add(play("B", "D2", "D4", "D7", "D5"));
+        // Repeats the initial position before reaching the position after 1. e4
+        long repeated = database.add(play("C", "G1", "F3", "G8", "F6", "F3", "G1", "F6", "G8",
+                "E2", "E4"));
+        assertEquals(3, database.getGameCount());
+
+        assertArrayEquals(new long[] {e4, d4, repeated}, database.find(new Board()));
+        Board board = new Board();
+        board.movePiece("E2", "E4");
+        assertArrayEquals(new long[] {e4, repeated}, database.find(board));
+        board.movePiece("E7", "E5");
+        assertArrayEquals(new long[] {e4}, database.find(board));
+        board.movePiece("A2", "A3");
+        assertEquals(0, database.find(board).length);
+        assertEquals("B", database.getGame(d4).getWhite());
+        database.close();
+
+        // Games are found after opening again
+        database = new GameDatabase(file);
+        assertEquals(3, database.getGameCount());
+        long last = database.add(play("D", "E2", "E4"));
+        database.close();
+        // The index is built again from the games
+        assertTrue(index.delete());
+        database = new GameDatabase(file);
+        assertEquals(4, database.getGameCount());
+        board = new Board();
+        board.movePiece("E2", "E4");
+        assertArrayEquals(new long[] {e4, repeated, last}, database.find(board));
+        assertEquals(5, database.getGame(repeated).getMoveCount());
+        assertEquals(board.toFen(), database.getGame(last).toBoard().toFen());
+
+        // The same position reached by other moves
+        long transposed = database.add(play("E", "G1", "F3", "B8", "C6", "E2", "E4", "E7", "E5"));
+        board = new Board();
+        board.movePiece("E2", "E4");
+        board.movePiece("E7", "E5");
+        board.movePiece("G1", "F3");
+        board.movePiece("B8", "C6");
+        assertArrayEquals(new long[] {transposed}, database.find(board));
+        database.close();
+    }
+
+    /**
+     * Test of find method, of class GameDatabase, between adding games, with games both in
+     * the index file and pending.
+     */
+    @Test
+    public void testFindPending() throws IOException, BoardException {
+        System.out.println("find pending");
+        File file = File.createTempFile("games", ".chdb");
+        file.delete();
+        File index = new File(file.getPath() + ".idx");
+        file.deleteOnExit();
+        index.deleteOnExit();
+
+        GameDatabase database = new GameDatabase(file);
+        Board e4 = new Board();
+        e4.movePiece("E2", "E4");
+        long first = database.add(play("A", "E2", "E4"));
+        assertArrayEquals(new long[] {first}, database.find(e4));
+        long second = database.add(play("B", "D2", "D4"));
+        assertArrayEquals(new long[] {first}, database.find(e4));
+        long third = database.add(play("C", "E2", "E4", "E7", "E5"));
+        assertArrayEquals(new long[] {first, third}, database.find(e4));
+        assertArrayEquals(new long[] {first, second, third}, database.find(new Board()));
+        // Searching doesn't merge the entries into the index file
+        assertFalse(index.exists());
+        database.close();
+        assertTrue(index.exists());
+
+        database = new GameDatabase(file);
+        long fourth = database.add(play("D", "E2", "E4"));
+        assertArrayEquals(new long[] {first, third, fourth}, database.find(e4));
+        long fifth = database.add(play("E", "E2", "E4"));
+        assertArrayEquals(new long[] {first, third, fourth, fifth}, database.find(e4));
+        assertArrayEquals(new long[] {second}, database.find(play("F", "D2", "D4").toBoard()));
+        database.close();
+    }
+
+    /**
+     * Test of the GameDatabase constructor, with a game only partly written at the end of
+     * the file.
+     */
+    @Test
+    public void testTornGame() throws IOException, BoardException {
+        System.out.println("torn game");
+        File file = File.createTempFile("games", ".chdb");
+        file.delete();
+        File index = new File(file.getPath() + ".idx");
+        file.deleteOnExit();
+        index.deleteOnExit();
+
+        GameDatabase database = new GameDatabase(file);
+        long first = database.add(play("A", "E2", "E4"));
+        database.close();
+        database = new GameDatabase(file);
+        long second = database.add(play("B", "E2", "E4", "E7", "E5"));
+        long size = database.getSize();
+        database.add(play("C", "E2", "E4", "D7", "D5"));
+        // Stopped before the index was merged and the last game written
+        RandomAccessFile data = new RandomAccessFile(file, "rw");
+        data.setLength(database.getSize() - 3);
+        data.close();
+
+        database = new GameDatabase(file);
+        assertEquals(2, database.getGameCount());
+        assertEquals(size, database.getSize());
+        assertEquals(size, file.length());
+        Board board = new Board();
+        board.movePiece("E2", "E4");
+        assertArrayEquals(new long[] {first, second}, database.find(board));
+        long third = database.add(play("D", "E2", "E4"));
+        assertEquals(size, third);
+        assertArrayEquals(new long[] {first, second, third}, database.find(board));
+        database.close();
+    }
+
+    /**
+     * Test of the GameDatabase constructor, with an invalid game before the end of the file.
+     */
+    @Test
+    public void testCorruptGame() throws IOException, BoardException {
+        System.out.println("corrupt game");
+        File file = File.createTempFile("games", ".chdb");
+        file.delete();
+        File index = new File(file.getPath() + ".idx");
+        file.deleteOnExit();
+        index.deleteOnExit();
+
+        GameDatabase database = new GameDatabase(file);
+        database.add(play("A", "E2", "E4"));
+        database.close();
+        database = new GameDatabase(file);
+        long second = database.add(play("B", "E2", "E4", "E7", "E5"));
+        database.add(play("C", "D2", "D4"));
+        long size = database.getSize();
+        // Stopped before the index was merged, and the second game was damaged since
+        RandomAccessFile data = new RandomAccessFile(file, "rw");
+        data.seek(second);
+        data.write('X');
+        data.close();
+
+        try {
+            new GameDatabase(file);
+            fail("Invalid game");
+        } catch (IOException e) {
+        }
+        // The games after it are kept
+        assertEquals(size, file.length());
+    }
+
+    /**
+     * Create a game from the initial position
+     * @param white
+     * @param moves Positions to move from and to
+     * @return The game
+     */
+    private static Game play(String white, String... moves) throws BoardException {
+        Board board = new Board();
+        for (int i = 0; i < moves.length; i += 2) {
+            board.movePiece(moves[i], moves[i + 1]);
+        }
+        Game game = Game.fromBoard(board);
+        game.setWhite(white);
+        return game;
+    }
+
+}
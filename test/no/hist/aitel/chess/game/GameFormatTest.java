@@ -0,0 +1,129 @@
+/*
+ * GameFormatTest.java
+ *
+ */
+
+package no.hist.aitel.chess.game;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import no.hist.aitel.chess.board.Board;
+import no.hist.aitel.chess.board.BoardException;
+import no.hist.aitel.chess.board.Move;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static no.hist.aitel.chess.piece.PieceConstants.*;
+
+/**
+ *
+ * @author martin
+ */
+public class GameFormatTest {
+
+    public GameFormatTest() {
+    }
+
+    /**
+     * Test of write and read methods, of class GameFormat.
+     */
+    @Test
+    public void testWriteRead() throws IOException, BoardException {
+        System.out.println("write and read");
+        Board board = new Board();
+        board.movePiece("E2", "E4");
+        board.movePiece("D7", "D5");
+        board.movePiece("E4", "D5");
+        board.movePiece("G8", "F6");
+        Game game = Game.fromBoard(board);
+        game.setWhite("\u00C6rlig");
+        game.setBlack("Black");
+        game.setWhiteTime(61000);
+        game.setBlackTime(5);
+        assertEquals(4, game.getMoveCount());
+
+        ByteBuffer buffer = ByteBuffer.allocate(GameFormat.getSize(game) * 2);
+        GameFormat.write(game, buffer);
+        assertEquals(GameFormat.getSize(game), buffer.position());
+        assertEquals(27 + 6 + 5 + 8, buffer.position());
+        GameFormat.write(new Game(), buffer);
+        buffer.flip();
+
+        Game read = GameFormat.read(buffer);
+        assertEquals("\u00C6rlig", read.getWhite());
+        assertEquals("Black", read.getBlack());
+        assertEquals(61000, read.getWhiteTime());
+        assertEquals(5, read.getBlackTime());
+        assertNull(read.getStartFen());
+        assertEquals(4, read.getMoveCount());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(game.getMove(i), read.getMove(i));
+        }
+        assertEquals(board.toFen(), read.toBoard().toFen());
+
+        Game empty = GameFormat.read(buffer);
+        assertEquals(0, empty.getMoveCount());
+        assertFalse(buffer.hasRemaining());
+    }
+
+    /**
+     * Test of save and load methods, of class GameFormat, for a game from a FEN.
+     */
+    @Test
+    public void testSaveLoad() throws IOException, BoardException {
+        System.out.println("save and load");
+        String fen = "4k3/1P6/8/8/8/8/8/4K3 w - - 0 1";
+        Board board = Board.fromFen(fen);
+        board.movePiece(49, 57, KNIGHT);
+        Game game = Game.fromBoard(board);
+        assertEquals(fen, game.getStartFen());
+        assertEquals(Move.createPromotion(49, 57, KNIGHT), game.getMove(0));
+
+        File file = File.createTempFile("game", ".chg");
+        file.deleteOnExit();
+        GameFormat.save(game, file);
+        assertEquals(GameFormat.getSize(game), file.length());
+        Game loaded = GameFormat.load(file);
+        assertEquals(fen, loaded.getStartFen());
+        Board loadedBoard = loaded.toBoard();
+        assertEquals(board.toFen(), loadedBoard.toFen());
+        assertEquals(KNIGHT, loadedBoard.getPiece(57).getType());
+    }
+
+    /**
+     * Test of read method, of class GameFormat, with corrupt data.
+     */
+    @Test
+    public void testReadCorrupt() {
+        System.out.println("read corrupt");
+        Game game = new Game();
+        game.addMove(Move.create(12, 28, Move.DOUBLE_PAWN));
+        ByteBuffer buffer = ByteBuffer.allocate(GameFormat.getSize(game));
+        GameFormat.write(game, buffer);
+
+        // Truncated
+        buffer.flip();
+        buffer.limit(buffer.limit() - 1);
+        assertReadFails(buffer);
+
+        // Illegal move
+        buffer.clear();
+        buffer.putShort(buffer.capacity() - 2, (short) Move.create(12, 36, Move.NORMAL));
+        assertReadFails(buffer);
+
+        // Bad magic
+        buffer.clear();
+        buffer.put(0, (byte) 'X');
+        assertReadFails(buffer);
+    }
+
+    private static void assertReadFails(ByteBuffer buffer) {
+        try {
+            GameFormat.read(buffer);
+            fail("Read corrupt game");
+        } catch (IOException e) {
+            // Expected
+        }
+    }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * PgnReaderTest.java
+ *
+ */
+
+package no.hist.aitel.chess.pgn;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import no.hist.aitel.chess.board.BitBoard;
+import no.hist.aitel.chess.board.Move;
+import no.hist.aitel.chess.board.MoveList;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author martin
+ */
+public class PgnReaderTest {
+
+    public PgnReaderTest() {
+    }
+
+    /**
+     * Test of parse method, of class San.
+     */
+    @Test
+    public void testParseSan() {
+        System.out.println("parse san");
+        MoveList list = new MoveList();
+        BitBoard bits = new BitBoard("r3k2r/1P6/8/8/8/2N3N1/8/R3K2R w KQkq - 0 1");
+        assertEquals("e1g1", Move.toString(San.parse(bits, "O-O", list)));
+        assertEquals("e1c1", Move.toString(San.parse(bits, "0-0-0+", list)));
+        assertEquals("b7a8q", Move.toString(San.parse(bits, "bxa8=Q", list)));
+        assertEquals("b7b8n", Move.toString(San.parse(bits, "b8N", list)));
+        // Both knights can go to E4, so the origin must be given
+        assertEquals(Move.NONE, San.parse(bits, "Ne4", list));
+        assertEquals("c3e4", Move.toString(San.parse(bits, "Nce4!?", list)));
+        assertEquals("g3e4", Move.toString(San.parse(bits, "Ngxe4", list)));
+        assertEquals(Move.NONE, San.parse(bits, "N3e4", list));
+        assertEquals(Move.NONE, San.parse(bits, "Qd1", list));
+        assertEquals(Move.NONE, San.parse(bits, "x", list));
+    }
+
+    /**
+     * Test of read method, of class PgnReader.
+     */
+    @Test
+    public void testRead() throws IOException {
+        System.out.println("read");
+        String pgn = "[Event \"Test\"]\n"
+                + "[White \"Bj\\\"rn\"]\n"
+                + "\n"
+                + "1.e4 {best by test} e5 (1... c5 (1... e6) 2. Nf3) 2. Nf3 $1 Nc6 3. Bb5 a6\n"
+                + "; a line comment\n"
+                + "4. O-O 1/2-1/2\n"
+                + "\n"
+                + "[FEN \"4k3/P7/8/8/8/8/8/4K3 w - - 0 1\"]\n"
+                + "1. a8=Q+ Kd7 *\n"
+                + "[Event \"Illegal\"]\n"
+                + "1. e5 e6 0-1\n"
+                + "1. d4 d5\n";
+        final StringBuilder events = new StringBuilder();
+        PgnReader reader = new PgnReader(Channels.newChannel(
+                new ByteArrayInputStream(pgn.getBytes("UTF-8"))));
+        long games = reader.read(new PgnListener() {
+
+            public void startGame() {
+                events.append("start ");
+            }
+
+            public void tag(String name, String value) {
+                events.append(name).append('=').append(value).append(' ');
+            }
+
+            public void move(BitBoard bits, int move) {
+                events.append(Move.toString(move)).append(' ');
+            }
+
+            public void error(String message, BitBoard bits) {
+                events.append('(').append(message).append(") ");
+            }
+
+            public void endGame(String result) {
+                events.append(result).append('\n');
+            }
+        });
+        assertEquals(4, games);
+        assertEquals("start Event=Test White=Bj\"rn e2e4 e7e5 g1f3 b8c6 f1b5 a7a6 e1g1 1/2-1/2\n"
+                + "start FEN=4k3/P7/8/8/8/8/8/4K3 w - - 0 1 a7a8q e8d7 *\n"
+                + "start Event=Illegal (Illegal move: e5) 0-1\n"
+                + "start d2d4 d7d5 *\n", events.toString());
+    }
+
+    /**
+     * Test of read method, of class PgnReader, with a game failing while it is replayed.
+     */
+    @Test
+    public void testReadFailure() throws IOException {
+        System.out.println("read failure");
+        String pgn = "1. e4 e5 2. Nf3 Nc6 *\n"
+                + "[FEN \"4k3/8/8/8/8/8/8/4K3 w - - 0 1\"]\n"
+                + "1. Kd1 Kd7 *\n";
+        final StringBuilder events = new StringBuilder();
+        PgnReader reader = new PgnReader(Channels.newChannel(
+                new ByteArrayInputStream(pgn.getBytes("UTF-8"))));
+        long games = reader.read(new PgnListener() {
+
+            public void startGame() {
+            }
+
+            public void tag(String name, String value) {
+            }
+
+            public void move(BitBoard bits, int move) {
+                if (Move.toString(move).equals("e7e5")) {
+                    throw new IllegalStateException("Failed");
+                }
+                events.append(Move.toString(move)).append(' ');
+            }
+
+            public void error(String message, BitBoard bits) {
+                events.append('(').append(message).append(") ");
+            }
+
+            public void endGame(String result) {
+                events.append(result).append('\n');
+            }
+        });
+        assertEquals(2, games);
+        assertEquals("e2e4 (Can't read move e5: java.lang.IllegalStateException: Failed) *\n"
+                + "e1d1 e8d7 *\n", events.toString());
+    }
+
+}
@@ -0,0 +1,77 @@
+/*
+ * PgnValidatorTest.java
+ *
+ */
+
+package no.hist.aitel.chess.pgn;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author martin
+ */
+public class PgnValidatorTest {
+
+    public PgnValidatorTest() {
+    }
+
+    /**
+     * Test of validate method, of class PgnValidator.
+     */
+    @Test
+    public void testValidate() throws IOException {
+        System.out.println("validate");
+        File directory = File.createTempFile("pgn", "");
+        directory.delete();
+        directory.mkdir();
+        directory.deleteOnExit();
+        write(new File(directory, "a.pgn"), "[Event \"A\"]\n\n1. e4 e5 2. Qh5 Nc6 3. Bc4 Nf6 "
+                + "4. Qxf7# 1-0\n\n[Event \"B\"]\n\n1. d4 d5 *\n");
+        write(new File(directory, "b.pgn"), "1. e4 e5 2. Ke3 Nc6 1-0\n1. Nf3 *\n");
+        write(new File(directory, "notes.txt"), "1. e5 *\n");
+
+        PgnValidator validator = new PgnValidator(2);
+        List<PgnValidator.Result> results;
+        try {
+            results = validator.validate(directory);
+        } finally {
+            validator.shutdown();
+        }
+        assertEquals(2, results.size());
+        PgnValidator.Result a = results.get(0);
+        assertEquals("a.pgn", a.getFile().getName());
+        assertEquals(2, a.getGames());
+        assertEquals(9, a.getMoves());
+        assertEquals(0, a.getErrorCount());
+
+        PgnValidator.Result b = results.get(1);
+        assertEquals(2, b.getGames());
+        assertEquals(3, b.getMoves());
+        assertEquals(1, b.getErrorCount());
+        assertEquals("Game 1: Illegal move: Ke3 in "
+                + "rnbqkbnr/pppp1ppp/8/4p3/4P3/8/PPPP1PPP/RNBQKBNR w KQkq e6 0 2",
+                b.getErrors().get(0));
+    }
+
+    /**
+     * Write a file to be deleted when the tests are done
+     * @param file
+     * @param text
+     */
+    private static void write(File file, String text) throws IOException {
+        file.deleteOnExit();
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(text.getBytes("UTF-8"));
+        } finally {
+            out.close();
+        }
+    }
+
+}
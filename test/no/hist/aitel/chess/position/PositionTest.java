@@ -0,0 +1,80 @@
+/*
+ * PositionTest.java
+ *
+ */
+
+package no.hist.aitel.chess.position;
+
+import no.hist.aitel.chess.board.Board;
+import no.hist.aitel.chess.board.BoardException;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static no.hist.aitel.chess.position.PositionConstants.*;
+
+/**
+ *
+ * @author martin
+ */
+public class PositionTest {
+
+    public PositionTest() {
+    }
+
+    /**
+     * Test of check method, of class Position.
+     */
+    @Test
+    public void testCheck() throws BoardException {
+        System.out.println("check");
+        Board board = new Board();
+        board.movePiece("E2", "E4");
+        board.movePiece("E7", "E5");
+        board.movePiece("F1", "C4");
+        board.movePiece("D7", "D5");
+        board.movePiece("A2", "A4");
+        Position position = new Position(board);
+
+        assertEquals(OUTSIDE_BOARD, position.check(0, 64));
+        assertEquals(OUTSIDE_BOARD, position.check(-1, 0));
+        assertEquals(SAME_COLOR, position.check(0, 1));
+        assertEquals(SAME_COLOR, position.check(1, 24));
+
+        // Pawns
+        assertEquals(VALID, position.check(24, 32));
+        assertEquals(VALID, position.check(9, 25));
+        assertEquals(PAWN_INITIAL, position.check(9, 41));
+        assertEquals(PAWN_FORWARD, position.check(24, 40));
+        assertEquals(PAWN_BLOCKED, position.check(28, 36));
+        assertEquals(VALID, position.check(28, 35));
+
+        // Pieces
+        assertEquals(VALID, position.check(26, 35));
+        assertEquals(BISHOP_MOVE, position.check(26, 34));
+        assertEquals(VALID, position.check(6, 21));
+        assertEquals(KNIGHT_MOVE, position.check(1, 20));
+        assertEquals(VALID, position.check(0, 16));
+        assertEquals(BLOCKED_PATH, position.check(0, 32));
+        assertEquals(VALID, position.check(3, 39));
+        assertEquals(VALID, position.check(4, 12));
+        assertEquals(KING_MOVE, position.check(4, 20));
+    }
+
+    /**
+     * Test of verifyPositions method, of class Position.
+     */
+    @Test
+    public void testVerifyPositions() {
+        System.out.println("verifyPositions");
+        Position position = new Position(new Board());
+        position.setPositions(0, 16);
+        try {
+            position.verifyPositions(false);
+            fail("Blocked path");
+        } catch (IllegalPositionException e) {
+            assertEquals(position.getMessage(BLOCKED_PATH), e.getMessage());
+        }
+        position.setPositions(1, 18);
+        position.verifyPositions(false);
+    }
+
+}